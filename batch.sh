@@ -0,0 +1,3 @@
+cd src/out/
+
+java BatchSolver ../../$1 $2 $3 ${@:4}
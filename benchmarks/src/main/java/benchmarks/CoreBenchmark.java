@@ -0,0 +1,98 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the operations the search spends its time in
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreBenchmark {
+    /**
+     * Instance file to parse
+     */
+    @State(Scope.Thread)
+    public static class Reading {
+        @Param({"10Queens.csp", "langfords3_10.csp", "FinnishSudoku.csp"})
+        public String instance;
+
+        String path;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            path = SolverHandles.instance(instance);
+        }
+    }
+
+    /**
+     * Solvers with variable 0 assigned its lower bound, so revising arc(0, 1)
+     * and establishing arc consistency both prune values
+     */
+    @State(Scope.Thread)
+    public static class Search {
+        @Param({"8Queens.csp", "langfords3_9.csp"})
+        public String instance;
+
+        Object fcSolver;
+        Object macSolver;
+        //arc(0, 1), revising the domain of variable 1
+        Object arc;
+        //Values pruned by the operation being measured, restored after each invocation
+        Stack<?> pruned = new Stack<>();
+
+        int lb0;
+        int lb1;
+        //Next pair of values checked against the constraint
+        int xi = 0;
+        int xj = 0;
+
+        @Setup(Level.Trial)
+        public void setup() throws Throwable {
+            Object csp = SolverHandles.read(SolverHandles.instance(instance));
+            lb0 = (int) SolverHandles.GET_LB.invokeExact(csp, 0);
+            lb1 = (int) SolverHandles.GET_LB.invokeExact(csp, 1);
+
+            fcSolver = SolverHandles.newSolver(csp, "fc", "a");
+            macSolver = SolverHandles.newSolver(csp, "mac", "a");
+            SolverHandles.ASSIGN.invokeExact(fcSolver, 0, lb0, (Object) new Stack<>());
+            SolverHandles.ASSIGN.invokeExact(macSolver, 0, lb0, (Object) new Stack<>());
+            arc = (Object) SolverHandles.ARC.invokeExact(fcSolver, 0, 1);
+        }
+    }
+
+    @Benchmark
+    public Object readBinaryCSP(Reading reading) throws Throwable {
+        return SolverHandles.read(reading.path);
+    }
+
+    @Benchmark
+    public boolean revise(Search search) throws Throwable {
+        boolean changed = (boolean) SolverHandles.REVISE.invokeExact(search.fcSolver, search.arc, (Object) search.pruned);
+        SolverHandles.UNDO_PRUNING.invokeExact(search.fcSolver, (Object) search.pruned);
+        return changed;
+    }
+
+    @Benchmark
+    public boolean satisfies(Search search) throws Throwable {
+        //Walk through the value pairs of the first ten values so checks both hit and miss
+        search.xj = (search.xj + 1) % 10;
+        if (search.xj == 0) {
+            search.xi = (search.xi + 1) % 10;
+        }
+
+        return (boolean) SolverHandles.SATISFIES.invokeExact(search.arc, search.lb0 + search.xi, search.lb1 + search.xj);
+    }
+
+    @Benchmark
+    public boolean ac3(Search search) throws Throwable {
+        boolean consistent = (boolean) SolverHandles.AC3.invokeExact(search.macSolver, (Object) search.pruned);
+        SolverHandles.UNDO_PRUNING.invokeExact(search.macSolver, (Object) search.pruned);
+        return consistent;
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end solve of each bundled instance with each algorithm and heuristic.
+ * The instance is parsed once per trial, each invocation builds a fresh solver
+ * and searches for the first solution, as run.sh does.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolveBenchmark {
+    @Param({"4Queens.csp", "6Queens.csp", "8Queens.csp", "10Queens.csp",
+            "langfords2_3.csp", "langfords2_4.csp", "langfords3_9.csp", "langfords3_10.csp",
+            "SimonisSudoku.csp", "FinnishSudoku.csp"})
+    public String instance;
+
+    @Param({"fc", "mac"})
+    public String algorithm;
+
+    @Param({"a", "s"})
+    public String heuristic;
+
+    private Object csp;
+
+    @Setup(Level.Trial)
+    public void read() throws Throwable {
+        csp = SolverHandles.read(SolverHandles.instance(instance));
+    }
+
+    @Benchmark
+    public Object solve() throws Throwable {
+        Object solver = SolverHandles.newSolver(csp, algorithm, heuristic);
+        return (Object) SolverHandles.SOLVE.invokeExact(solver);
+    }
+}
@@ -0,0 +1,123 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Stack;
+
+/**
+ * Method handles to the solver classes. The solver lives in the default package,
+ * which can not be imported from the named package JMH requires benchmarks to be in,
+ * so its classes are looked up by name. Handles are static final and typed over
+ * Object so invokeExact calls are inlined by the JIT like direct calls.
+ */
+final class SolverHandles {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    static final MethodHandle NEW_READER;
+    static final MethodHandle READ_BINARY_CSP;
+    static final MethodHandle NEW_FC_SOLVER;
+    static final MethodHandle NEW_MAC_SOLVER;
+    static final MethodHandle SOLVE;
+    static final MethodHandle ARC;
+    static final MethodHandle REVISE;
+    static final MethodHandle ASSIGN;
+    static final MethodHandle UNDO_PRUNING;
+    static final MethodHandle AC3;
+    static final MethodHandle SATISFIES;
+    static final MethodHandle GET_LB;
+
+    static final Object ASCENDING;
+    static final Object SMALLEST_DOMAIN_FIRST;
+
+    static {
+        try {
+            Class<?> reader = Class.forName("BinaryCSPReader");
+            Class<?> binaryCSP = Class.forName("BinaryCSP");
+            Class<?> heuristic = Class.forName("Heuristic");
+            Class<?> solver = Class.forName("Solver");
+            Class<?> constraint = Class.forName("BinaryConstraint");
+
+            NEW_READER = constructor(reader);
+            READ_BINARY_CSP = method(reader, "readBinaryCSP", String.class);
+            NEW_FC_SOLVER = constructor(Class.forName("FCSolver"), binaryCSP, heuristic);
+            NEW_MAC_SOLVER = constructor(Class.forName("MACSolver"), binaryCSP, heuristic);
+            SOLVE = method(solver, "solve");
+            ARC = method(solver, "arc", int.class, int.class);
+            REVISE = method(solver, "revise", constraint, Stack.class);
+            ASSIGN = method(solver, "assign", int.class, int.class, Stack.class);
+            UNDO_PRUNING = method(solver, "undoPruning", Stack.class);
+            AC3 = method(Class.forName("MACSolver"), "AC3", Stack.class);
+            SATISFIES = method(constraint, "satisfies", int.class, int.class);
+            GET_LB = method(binaryCSP, "getLB", int.class);
+
+            ASCENDING = heuristic.getField("ASCENDING").get(null);
+            SMALLEST_DOMAIN_FIRST = heuristic.getField("SMALLEST_DOMAIN_FIRST").get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SolverHandles() {
+    }
+
+    /**
+     * Reads an instance file
+     * @param fn - instance file
+     * @return BinaryCSP
+     */
+    static Object read(String fn) throws Throwable {
+        Object csp = (Object) READ_BINARY_CSP.invokeExact((Object) NEW_READER.invokeExact(), (Object) fn);
+
+        if (csp == null) {
+            throw new IllegalArgumentException("Could not read " + fn);
+        }
+
+        return csp;
+    }
+
+    /**
+     * Creates a solver from the same arguments as run.sh
+     * @param csp - BinaryCSP to solve
+     * @param algorithm - fc or mac
+     * @param heuristic - a or s
+     * @return Solver
+     */
+    static Object newSolver(Object csp, String algorithm, String heuristic) throws Throwable {
+        Object h = heuristic.equals("a") ? ASCENDING : SMALLEST_DOMAIN_FIRST;
+
+        if (algorithm.equals("fc")) {
+            return (Object) NEW_FC_SOLVER.invokeExact(csp, h);
+        }
+
+        return (Object) NEW_MAC_SOLVER.invokeExact(csp, h);
+    }
+
+    /**
+     * @return path of an instance in the instances directory, set with -Dinstances.dir
+     */
+    static String instance(String name) {
+        return System.getProperty("instances.dir", "../instances") + "/" + name;
+    }
+
+    /**
+     * Unreflects a constructor, erasing every reference type to Object
+     */
+    private static MethodHandle constructor(Class<?> clazz, Class<?>... parameters) throws ReflectiveOperationException {
+        Constructor<?> constructor = clazz.getDeclaredConstructor(parameters);
+        constructor.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+        return handle.asType(handle.type().erase());
+    }
+
+    /**
+     * Unreflects a (possibly protected) method, erasing every reference type to Object
+     */
+    private static MethodHandle method(Class<?> clazz, String name, Class<?>... parameters) throws ReflectiveOperationException {
+        Method method = clazz.getDeclaredMethod(name, parameters);
+        method.setAccessible(true);
+        MethodHandle handle = LOOKUP.unreflect(method);
+        return handle.asType(handle.type().erase());
+    }
+}
@@ -0,0 +1,30 @@
+# Checks that a search stopped by a node limit and resumed until it finishes counts the
+# same solutions as one uninterrupted run
+# Usage: ./check-resume.sh <CSP file> <algorithm> <heuristic> [nodes per run] [options]
+
+./compile.sh || exit 1
+
+checkpoint=$(mktemp -u)
+nodes=${4:-500}
+
+expected=$(java -cp src/out/ BinaryCSPReader $1 $2 $3 all ${@:5} | grep "^Solutions:")
+
+runs=0
+while true; do
+    runs=$((runs + 1))
+    status=$(java -cp src/out/ BinaryCSPReader $1 $2 $3 all ${@:5} nodes=$nodes checkpoint=$checkpoint resume=$checkpoint | grep "^Status:")
+
+    if [ "$status" != "Status: LIMIT" ]; then
+        break
+    fi
+done
+
+actual=$(java -cp src/out/ BinaryCSPReader $1 $2 $3 all ${@:5} resume=$checkpoint | grep "^Solutions:")
+rm -f $checkpoint
+
+if [ "$expected" == "$actual" ]; then
+    echo "OK after $runs runs: $actual"
+else
+    echo "FAILED after $runs runs: expected $expected, resumed $actual"
+    exit 1
+fi
@@ -1,3 +1,3 @@
 cd src/
 
-javac -d out/ BinaryConstraint.java BinaryCSP.java BinaryCSPReader.java BinaryTuple.java DomainEmptyException.java FCSolver.java Heuristic.java MACSolver.java Solver.java
+javac -d out/ BatchSolver.java BinaryConstraint.java BinaryCSP.java BinaryCSPReader.java BinaryTuple.java Cancellation.java Checkpoint.java DomainEmptyException.java FCSolver.java Heuristic.java InstanceCache.java InstanceGenerator.java Interchangeability.java MACSolver.java SearchEvents.java SearchMetrics.java Solver.java SolverDaemon.java Status.java Symmetries.java
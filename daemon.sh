@@ -0,0 +1,3 @@
+cd src/out/
+
+java SolverDaemon "$@"
@@ -0,0 +1 @@
+java -cp src/out/ InstanceGenerator "$@"
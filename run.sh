@@ -1,3 +1,3 @@
 cd src/out/
 
-java BinaryCSPReader ../../$1 $2 $3 
+java BinaryCSPReader ../../$1 $2 $3 ${@:4}
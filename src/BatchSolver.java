@@ -0,0 +1,196 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Solves many instances in one JVM on a pool of threads, writing one result
+ * row per instance to standard output as soon as that instance finishes
+ */
+public final class BatchSolver {
+    private final String algorithm;
+    private final String heuristic;
+    //Solver options applied to every instance (see BinaryCSPReader.applyOptions)
+    private final String[] options;
+    private final boolean json;
+
+    /**
+     * Constructor for BatchSolver
+     * @param algorithm - fc or mac
+     * @param heuristic - a or s
+     * @param options - solver options applied to every instance
+     * @param json - whether rows are written as JSON lines rather than CSV
+     */
+    public BatchSolver(String algorithm, String heuristic, String[] options, boolean json) {
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+        this.options = options;
+        this.json = json;
+    }
+
+    /**
+     * Main function for batch mode
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.out.println("Usage: java BatchSolver <directory | manifest> <algorithm> <heuristic> "
+                    + "[threads=<n>] [format=csv|jsonl] [options]");
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        ArrayList<String> options = new ArrayList<>();
+
+        //Batch flags are consumed here, everything else is passed on to each solver
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].startsWith("threads=")) {
+                threads = Integer.parseInt(args[i].substring(8));
+            } else if (args[i].equals("format=jsonl")) {
+                json = true;
+            } else if (!args[i].equals("format=csv")) {
+                options.add(args[i]);
+            }
+        }
+
+        List<File> instances = listInstances(new File(args[0]));
+
+        if (instances == null) {
+            System.err.println("Could not read instances from " + args[0]);
+            return;
+        }
+
+        new BatchSolver(args[1], args[2], options.toArray(new String[0]), json).run(instances, threads);
+    }
+
+    /**
+     * Gets the instances to solve
+     * @param source - directory of .csp files, or manifest file listing one instance per line
+     * @return instance files, or null if source can not be read
+     */
+    static List<File> listInstances(File source) {
+        ArrayList<File> instances = new ArrayList<>();
+
+        if (source.isDirectory()) {
+            File[] files = source.listFiles((dir, name) -> name.endsWith(".csp"));
+
+            if (files == null) {
+                return null;
+            }
+
+            Arrays.sort(files);
+            instances.addAll(Arrays.asList(files));
+            return instances;
+        }
+
+        try (BufferedReader in = new BufferedReader(new FileReader(source))) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+
+                //Skip blank lines and comments
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                }
+
+                //Relative paths are relative to the manifest
+                File instance = new File(line);
+                instances.add(instance.isAbsolute() ? instance : new File(source.getParentFile(), line));
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        return instances;
+    }
+
+    /**
+     * Solves every instance, printing each row as the instance finishes
+     * @param instances - instance files to solve
+     * @param threads - number of instances solved concurrently
+     */
+    public void run(List<File> instances, int threads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<String> results = new ExecutorCompletionService<>(pool);
+
+        for (File instance : instances) {
+            results.submit(() -> solve(instance));
+        }
+
+        if (!json) {
+            System.out.println("instance,algorithm,heuristic,status,time_ms,nodes,arc_revisions,solutions");
+        }
+
+        //Rows are taken in the order instances finish, not the order they were submitted
+        for (int i = 0; i < instances.size(); i++) {
+            try {
+                System.out.println(results.take().get());
+            } catch (ExecutionException e) {
+                System.err.println(e.getCause());
+            }
+        }
+
+        pool.shutdown();
+    }
+
+    /**
+     * Solves a single instance
+     * @param instance - instance file
+     * @return result row
+     */
+    private String solve(File instance) {
+        //Each task uses its own reader, as a reader keeps its tokenizer between calls
+        try {
+            BinaryCSP csp = new BinaryCSPReader().readBinaryCSP(instance.getPath());
+            Solver solver = BinaryCSPReader.createSolver(csp, algorithm, heuristic);
+
+            if (solver != null) {
+                BinaryCSPReader.applyOptions(solver, csp, options, 0);
+                Status status = solver.solve();
+
+                return row(instance, status.name(), solver.getDurationMS(), solver.getNumNodes(),
+                        solver.getNumArcRevisions(), solver.getNumSolutions(), solver.getMetrics());
+            }
+        } catch (Throwable e) {
+            //Errors such as StackOverflowError on a deep instance still give the instance a row
+            System.err.println(instance + ": " + e);
+        }
+
+        return row(instance, "ERROR", 0, 0, 0, 0, null);
+    }
+
+    /**
+     * Formats a result row as CSV or a JSON object, metrics are only included in JSON
+     */
+    private String row(File instance, String status, long timeMS, long nodes, long arcRevisions, long solutions,
+                       SearchMetrics metrics) {
+        StringBuilder result = new StringBuilder();
+
+        if (json) {
+            result.append("{\"instance\":\"").append(instance.getPath().replace("\\", "\\\\").replace("\"", "\\\""));
+            result.append("\",\"algorithm\":\"").append(algorithm);
+            result.append("\",\"heuristic\":\"").append(heuristic);
+            result.append("\",\"status\":\"").append(status);
+            result.append("\",\"time_ms\":").append(timeMS);
+            result.append(",\"nodes\":").append(nodes);
+            result.append(",\"arc_revisions\":").append(arcRevisions);
+            result.append(",\"solutions\":").append(solutions);
+
+            if (metrics != null) {
+                result.append(",\"metrics\":").append(metrics.toJson());
+            }
+            result.append("}");
+        } else {
+            result.append('"').append(instance.getPath().replace("\"", "\"\"")).append('"');
+            result.append(',').append(algorithm);
+            result.append(',').append(heuristic);
+            result.append(',').append(status);
+            result.append(',').append(timeMS);
+            result.append(',').append(nodes);
+            result.append(',').append(arcRevisions);
+            result.append(',').append(solutions);
+        }
+
+        return result.toString();
+    }
+}
@@ -13,26 +13,109 @@ public final class BinaryCSPReader {
    * Main (for testing)
    */
   public static void main(String[] args) {
-    if (args.length != 3) {
-      System.out.println("Usage: ./run.sh BinaryCSPReader <file.csp> <algorithm> <heuristic>") ;
+    if (args.length < 3) {
+      System.out.println("Usage: ./run.sh BinaryCSPReader <file.csp> <algorithm> <heuristic> [options]") ;
       return ;
     }
     BinaryCSPReader reader = new BinaryCSPReader() ;
-    System.out.println(reader.readBinaryCSP(args[0])) ;
+    BinaryCSP csp = reader.readBinaryCSP(args[0]) ;
+    System.out.println(csp) ;
 
     //Uses args to select algorithm and heuristic to use
-    if (args[1].equals("fc")) {
-        if (args[2].equals("a")) {
-            new FCSolver(reader.readBinaryCSP(args[0]), Heuristic.ASCENDING).solve();
-        } else if (args[2].equals("s")) {
-            new FCSolver(reader.readBinaryCSP(args[0]), Heuristic.SMALLEST_DOMAIN_FIRST).solve();
+    Solver solver = createSolver(csp, args[1], args[2]) ;
+
+    if (solver == null) {
+      return ;
+    }
+
+    applyOptions(solver, csp, args, 3) ;
+
+    if (solver.solve() == Status.SAT && solver.getSolution() != null) {
+      solver.printSolution() ;
+    }
+    solver.printResults() ;
+
+    if (solver.getMetrics() != null) {
+      System.out.println("Metrics: " + solver.getMetrics().toJson()) ;
+    }
+  }
+
+  /**
+   * Creates a solver from command line arguments
+   * @param csp - problem to solve
+   * @param algorithm - fc or mac
+   * @param heuristic - a or s
+   * @return solver, or null if the algorithm or heuristic is not recognised
+   */
+  static Solver createSolver(BinaryCSP csp, String algorithm, String heuristic) {
+    Heuristic h = null ;
+    if (heuristic.equals("a")) {
+      h = Heuristic.ASCENDING ;
+    } else if (heuristic.equals("s")) {
+      h = Heuristic.SMALLEST_DOMAIN_FIRST ;
+    }
+
+    if (csp == null || h == null) {
+      return null ;
+    } else if (algorithm.equals("fc")) {
+      return new FCSolver(csp, h) ;
+    } else if (algorithm.equals("mac")) {
+      return new MACSolver(csp, h) ;
+    }
+    return null ;
+  }
+
+  /**
+   * Applies optional flags to a solver: count all solutions, collapse interchangeable
+   * values, break symmetries, record metrics, limit the search and save or resume it
+   * @param solver - solver to configure
+   * @param csp - problem being solved
+   * @param args - command line arguments
+   * @param from - index of the first optional argument
+   */
+  static void applyOptions(Solver solver, BinaryCSP csp, String[] args, int from) {
+    String checkpointFile = null ;
+    long intervalMS = 60000 ;
+
+    for (int i = from; i < args.length; i++) {
+      if (args[i].equals("all")) {
+        solver.setEnumerate(true);
+      } else if (args[i].equals("ni")) {
+        solver.setInterchangeability(true);
+      } else if (args[i].equals("sym")) {
+        solver.setDetectSymmetries(true);
+      } else if (args[i].startsWith("sym=")) {
+        try {
+          solver.setSymmetries(Symmetries.read(csp, args[i].substring(4)));
         }
-    } else if (args[1].equals("mac")) {
-        if (args[2].equals("a")) {
-            new MACSolver(reader.readBinaryCSP(args[0]), Heuristic.ASCENDING).solve();
-        } else if (args[2].equals("s")) {
-            new MACSolver(reader.readBinaryCSP(args[0]), Heuristic.SMALLEST_DOMAIN_FIRST).solve();
+        catch (IOException e) {throw new UncheckedIOException(e);}
+      } else if (args[i].equals("metrics")) {
+        solver.setMetrics(new SearchMetrics());
+      } else if (args[i].startsWith("nodes=")) {
+        solver.setNodeLimit(Long.parseLong(args[i].substring(6)));
+      } else if (args[i].startsWith("revisions=")) {
+        solver.setRevisionLimit(Long.parseLong(args[i].substring(10)));
+      } else if (args[i].startsWith("time=")) {
+        solver.setTimeLimit(Long.parseLong(args[i].substring(5)));
+      } else if (args[i].startsWith("checkpoint=")) {
+        checkpointFile = args[i].substring(11);
+      } else if (args[i].startsWith("interval=")) {
+        intervalMS = Long.parseLong(args[i].substring(9)) * 1000;
+      } else if (args[i].startsWith("resume=")) {
+        String fn = args[i].substring(7);
+
+        //A missing checkpoint starts from the root, so a restarted run can always pass resume=
+        if (new File(fn).exists()) {
+          try {
+            solver.setResume(Checkpoint.read(fn));
+          }
+          catch (IOException e) {throw new UncheckedIOException(e);}
         }
+      }
+    }
+
+    if (checkpointFile != null) {
+      solver.setCheckpoint(checkpointFile, intervalMS);
     }
   }
 
@@ -50,7 +133,21 @@ public final class BinaryCSPReader {
   public BinaryCSP readBinaryCSP(String fn) {
     try {
       inFR = new FileReader(fn) ;
-      in = new StreamTokenizer(inFR) ;
+      BinaryCSP csp = readBinaryCSP(inFR) ;
+      inFR.close() ;
+      return csp ;
+    }
+    catch (FileNotFoundException e) {System.err.println(e);}
+    catch (IOException e) {System.err.println(e);}
+    return null ;
+  }
+
+  /**
+   * Reads a CSP in the file format above from any source, e.g. instance text held in memory
+   */
+  public BinaryCSP readBinaryCSP(Reader r) {
+    try {
+      in = new StreamTokenizer(r) ;
       in.ordinaryChar('(') ;
       in.ordinaryChar(')') ;
       in.nextToken() ;                                         // n
@@ -67,11 +164,9 @@ public final class BinaryCSPReader {
       BinaryCSP csp = new BinaryCSP(domainBounds, constraints) ;
       // TESTING:
       // System.out.println(csp) ;
-      inFR.close() ;
       return csp ;
     }
-    catch (FileNotFoundException e) {System.out.println(e);}
-    catch (IOException e) {System.out.println(e);}
+    catch (IOException e) {System.err.println(e);}
     return null ;
   }
 
@@ -110,7 +205,7 @@ public final class BinaryCSPReader {
 	  
       return constraints ;
     }
-    catch (IOException e) {System.out.println(e);}
+    catch (IOException e) {System.err.println(e);}
     return null ;  
   }
 }
@@ -66,6 +66,18 @@ public final class BinaryConstraint {
     int temp = firstVar;
     firstVar = secondVar;
     secondVar = temp;
-    reversed = true;
+    reversed = !reversed;
+  }
+
+  /**
+   * Creates the equivalent constraint with firstVar and secondVar swapped,
+   * sharing the same tuples
+   * @return arc(secondVar, firstVar)
+   */
+  public BinaryConstraint reversedCopy() {
+    BinaryConstraint copy = new BinaryConstraint(firstVar, secondVar, tuples) ;
+    copy.reversed = reversed ;
+    copy.reverse() ;
+    return copy ;
   }
 }
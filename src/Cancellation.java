@@ -0,0 +1,18 @@
+/**
+ * Handle used to cancel a running search from another thread. The solver
+ * polls it while searching and unwinds shortly after it is cancelled.
+ */
+public final class Cancellation {
+    private volatile boolean cancelled = false;
+
+    /**
+     * Requests that the search stops, safe to call from any thread
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
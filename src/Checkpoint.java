@@ -0,0 +1,219 @@
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Snapshot of a search which can be resumed later. The search tree is binary
+ * (var = val on the left, var != val on the right), so the work left is described
+ * by the path of decisions from the root to the current node: the subtree below it,
+ * plus the right branch of every decision whose left branch is still in progress.
+ * Solutions in branches already finished are held in the counts.
+ *
+ * File format:
+ * // comment
+ * instance <fingerprint of the problem>
+ * config <solver and options>
+ * status <RUNNING or final status>
+ * nodes, revisions, solutions, found <count> (one per line)
+ * path
+ * <var>, <val>, <left | right | left-only> (one per decision, from the root)
+ */
+public class Checkpoint {
+    //Left branch in progress, right branch still to search
+    public static final int LEFT = 0;
+    //Right branch in progress, left branch finished
+    public static final int RIGHT = 1;
+    //Left branch in progress, right branch handed to another search
+    public static final int LEFT_ONLY = 2;
+
+    private static final String[] BRANCHES = {"left", "right", "left-only"};
+
+    String instance = "";
+    String config = "";
+    //Final status of the search, or null if it is still running
+    Status status;
+    long numNodes = 0;
+    long numArcRevisions = 0;
+    long numSolutions = 0;
+    long numSolutionsFound = 0;
+    //Decisions {var, val, branch} from the root to the current node
+    ArrayList<int[]> path = new ArrayList<>();
+
+    /**
+     * Main function to split a checkpoint, for sharing a search between machines
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !args[0].equals("split")) {
+            System.out.println("Usage: java Checkpoint split <checkpoint> <new checkpoint>");
+            return;
+        }
+
+        Checkpoint checkpoint = read(args[1]);
+        Checkpoint other = checkpoint.split();
+
+        if (other == null) {
+            System.out.println("No unexplored subtree to hand out");
+            return;
+        }
+
+        checkpoint.write(args[1]);
+        other.write(args[2]);
+    }
+
+    /**
+     * Hands the right branch of the shallowest decision still to search to a new checkpoint.
+     * This checkpoint no longer searches that branch, and the new one searches only it,
+     * so together they cover the same work and their counts can be added.
+     * @return checkpoint of the unexplored right branch, or null if there is none
+     */
+    public Checkpoint split() {
+        for (int i = 0; i < path.size(); i++) {
+            if (path.get(i)[2] == LEFT) {
+                Checkpoint other = new Checkpoint();
+                other.instance = instance;
+                other.config = config;
+
+                //The new search follows the same decisions down to the branch, without their right branches
+                for (int j = 0; j < i; j++) {
+                    int[] decision = path.get(j);
+                    other.path.add(new int[] {decision[0], decision[1], decision[2] == RIGHT ? RIGHT : LEFT_ONLY});
+                }
+                other.path.add(new int[] {path.get(i)[0], path.get(i)[1], RIGHT});
+
+                path.get(i)[2] = LEFT_ONLY;
+                return other;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the checkpoint, replacing the file in one step so a crash never leaves it half written
+     * @param fn - checkpoint file
+     */
+    public void write(String fn) throws IOException {
+        Path target = Paths.get(fn).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (Writer out = Files.newBufferedWriter(temp)) {
+            out.write("// Search checkpoint\n");
+            out.write("instance " + instance + "\n");
+            out.write("config " + config + "\n");
+            out.write("status " + (status == null ? "RUNNING" : status.name()) + "\n");
+            out.write("nodes " + numNodes + "\n");
+            out.write("revisions " + numArcRevisions + "\n");
+            out.write("solutions " + numSolutions + "\n");
+            out.write("found " + numSolutionsFound + "\n");
+            out.write("path\n");
+
+            for (int[] decision : path) {
+                out.write(decision[0] + ", " + decision[1] + ", " + BRANCHES[decision[2]] + "\n");
+            }
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint
+     * @param fn - checkpoint file
+     * @return checkpoint
+     */
+    public static Checkpoint read(String fn) throws IOException {
+        Checkpoint checkpoint = new Checkpoint();
+
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(fn))) {
+            String line;
+            boolean inPath = false;
+
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                } else if (inPath) {
+                    String[] fields = line.split(",\\s*");
+                    checkpoint.path.add(new int[] {Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                            Arrays.asList(BRANCHES).indexOf(fields[2])});
+                } else if (line.equals("path")) {
+                    inPath = true;
+                } else {
+                    String key = line.split(" ", 2)[0];
+                    String value = line.substring(key.length()).trim();
+
+                    if (key.equals("instance")) {
+                        checkpoint.instance = value;
+                    } else if (key.equals("config")) {
+                        checkpoint.config = value;
+                    } else if (key.equals("status")) {
+                        checkpoint.status = value.equals("RUNNING") ? null : Status.valueOf(value);
+                    } else if (key.equals("nodes")) {
+                        checkpoint.numNodes = Long.parseLong(value);
+                    } else if (key.equals("revisions")) {
+                        checkpoint.numArcRevisions = Long.parseLong(value);
+                    } else if (key.equals("solutions")) {
+                        checkpoint.numSolutions = Long.parseLong(value);
+                    } else if (key.equals("found")) {
+                        checkpoint.numSolutionsFound = Long.parseLong(value);
+                    }
+                }
+            }
+        }
+
+        for (int[] decision : checkpoint.path) {
+            if (decision[2] < 0) {
+                throw new IOException("Unknown branch in checkpoint " + fn);
+            }
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Hashes the domains and constraints of a problem, so a checkpoint is only resumed
+     * on the problem it was written for. Values are fed to the digest as they are visited.
+     * @param binaryCSP - problem to fingerprint
+     * @return hex SHA-256 of the problem
+     */
+    public static String fingerprint(BinaryCSP binaryCSP) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8];
+
+            for (int v = 0; v < binaryCSP.getNoVariables(); v++) {
+                update(digest, buffer, binaryCSP.getLB(v), binaryCSP.getUB(v));
+            }
+
+            for (BinaryConstraint bc : binaryCSP.getConstraints()) {
+                update(digest, buffer, bc.getFirstVar(), bc.getSecondVar());
+                update(digest, buffer, bc.getTuples().size(), 0);
+
+                for (BinaryTuple tuple : bc.getTuples()) {
+                    update(digest, buffer, tuple.getVal1(), tuple.getVal2());
+                }
+            }
+
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest()) {
+                result.append(String.format("%02x", b));
+            }
+
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, byte[] buffer, int a, int b) {
+        for (int i = 0; i < 4; i++) {
+            buffer[i] = (byte) (a >>> (8 * i));
+            buffer[4 + i] = (byte) (b >>> (8 * i));
+        }
+
+        digest.update(buffer);
+    }
+}
@@ -1,8 +1,6 @@
 import java.util.LinkedHashSet;
 import java.util.Stack;
 
-import static java.lang.System.exit;
-
 /**
  * FCSolver subclass of Solver to implement the forward checking algorithm
  */
@@ -16,19 +14,8 @@ public class FCSolver extends Solver {
         super(binaryCSP, heuristic);
     }
 
-    /**
-     * Main function for FCSolver
-     */
-    public void solve() {
-        LinkedHashSet<Integer> varList = new LinkedHashSet<>();
-
-        //Add variables to hash set for constant access
-        for (int v = 0; v < binaryCSP.getNoVariables(); v++) {
-            varList.add(v);
-        }
-
-        startTime = System.nanoTime();
-        //Run FC algorithm on unassigned variables
+    @Override
+    protected void search(LinkedHashSet<Integer> varList) {
         forwardChecking(varList);
     }
 
@@ -37,24 +24,38 @@ public class FCSolver extends Solver {
      * @param varList - list of unassigned variables
      */
     private void forwardChecking(LinkedHashSet<Integer> varList) {
-        numNodes++;
+        //Stop exploring if a limit has been reached, leaving the node uncounted as it is
+        //searched (and counted) when a checkpoint of the search is resumed
+        if (limitReached()) {
+            return;
+        }
+
+        countNode();
 
         //If all variables have been assigned
         if (completeAssignment() ) {
-            //Set solution
-            printSolution();
-            printResults();
-            exit(0);
+            //Set solution, stopping unless enumerating
+            recordSolution();
+            return;
         }
 
-        //Select variable to assign a value
-        int var = selectVar(varList);
-        int val = selectVal(domains.get(var));
+        checkpointIfDue();
 
-        //Run left branch
-        branchFCLeft(varList, var, val);
-        //Run right branch
-        branchFCRight(varList, var, val);
+        //Select variable to assign a value, or follow the checkpoint being resumed
+        int[] decision = decide(varList);
+        int var = decision[0];
+        int val = decision[1];
+
+        //Run left branch, unless a resumed checkpoint already finished it
+        if (decision[2] != Checkpoint.RIGHT) {
+            branchFCLeft(varList, var, val);
+        }
+        //Run right branch unless the search has stopped or it was handed to another search
+        if (!stopped && decision[2] != Checkpoint.LEFT_ONLY) {
+            decision[2] = Checkpoint.RIGHT;
+            branchFCRight(varList, var, val);
+        }
+        undecide();
     }
 
     /**
@@ -67,8 +68,9 @@ public class FCSolver extends Solver {
         Stack<BinaryTuple> pruned = new Stack<>();
         //Assign value to variable
         assign(var, val, pruned);
-        //If future arcs were revised successfully
-        if (reviseFutureArcs(varList, var, pruned)) {
+        //If the assignment is not excluded by symmetry breaking
+        //and future arcs were revised successfully
+        if (isLexLeader() && reviseFutureArcs(varList, var, pruned)) {
             //Create subset of varList without var
             LinkedHashSet<Integer> subset = (LinkedHashSet<Integer>) varList.clone();
             subset.remove(var);
@@ -128,6 +130,11 @@ public class FCSolver extends Solver {
                         //Revise the domain of the future variable
                         revise(arc(var, futureVar), pruned);
                     }
+
+                    //Fail the branch if the search was stopped during revision
+                    if (stopped) {
+                        return false;
+                    }
                  //Returns false iff a domain is emptied by a revision
                 } catch (DomainEmptyException e) {
                     return false;
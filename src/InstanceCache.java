@@ -0,0 +1,117 @@
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Least recently used cache of parsed problems, keyed by a hash of the instance text
+ * and bounded by an estimate of the memory the problems take up. Problems are not
+ * modified by solvers, so one cached problem may be solved by several threads at once.
+ */
+public class InstanceCache {
+    //Estimated sizes of the parts of a problem, in bytes
+    private static final long TUPLE_BYTES = 32;
+    private static final long CONSTRAINT_BYTES = 64;
+    private static final long VARIABLE_BYTES = 32;
+
+    private final long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    //Access ordered, so the first entry is the least recently used
+    private final LinkedHashMap<String, BinaryCSP> problems = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<String, Long> sizes = new HashMap<>();
+
+    /**
+     * Constructor for InstanceCache
+     * @param maxBytes - estimated memory the cached problems may take up
+     */
+    public InstanceCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets a cached problem, marking it as most recently used
+     * @param key - hash of the instance text
+     * @return problem, or null if it is not cached
+     */
+    public synchronized BinaryCSP get(String key) {
+        BinaryCSP csp = problems.get(key);
+
+        if (csp == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return csp;
+    }
+
+    /**
+     * Caches a problem, evicting the least recently used problems until it fits
+     * @param key - hash of the instance text
+     * @param csp - parsed problem
+     */
+    public synchronized void put(String key, BinaryCSP csp) {
+        long size = estimateBytes(csp);
+
+        //Problems larger than the whole cache are not cached
+        if (size > maxBytes || problems.containsKey(key)) {
+            return;
+        }
+
+        Iterator<Map.Entry<String, BinaryCSP>> lru = problems.entrySet().iterator();
+        while (bytes + size > maxBytes && lru.hasNext()) {
+            bytes -= sizes.remove(lru.next().getKey());
+            lru.remove();
+        }
+
+        problems.put(key, csp);
+        sizes.put(key, size);
+        bytes += size;
+    }
+
+    /**
+     * Converts the cache statistics to a JSON object
+     * @return JSON statistics
+     */
+    public synchronized String toJson() {
+        return "{\"entries\":" + problems.size() + ",\"bytes\":" + bytes + ",\"max_bytes\":" + maxBytes
+                + ",\"hits\":" + hits + ",\"misses\":" + misses + "}";
+    }
+
+    /**
+     * Hashes instance text
+     * @param content - instance text
+     * @return hex SHA-256 of content
+     */
+    public static String hash(byte[] content) {
+        try {
+            StringBuilder result = new StringBuilder();
+
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                result.append(String.format("%02x", b));
+            }
+
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Estimates the memory taken up by a problem
+     * @param csp - problem
+     * @return estimate in bytes
+     */
+    static long estimateBytes(BinaryCSP csp) {
+        long size = csp.getNoVariables() * VARIABLE_BYTES;
+
+        for (BinaryConstraint bc : csp.getConstraints()) {
+            size += CONSTRAINT_BYTES + bc.getTuples().size() * TUPLE_BYTES;
+        }
+
+        return size;
+    }
+}
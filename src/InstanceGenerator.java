@@ -0,0 +1,312 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Generates instances in the format read by BinaryCSPReader. Constraints are written
+ * as they are generated, so memory use does not grow with the size of the instance,
+ * and random choices come from a seeded generator so output is reproducible.
+ */
+public final class InstanceGenerator {
+    private final Writer out;
+    private final Random random;
+
+    /**
+     * Constructor for InstanceGenerator
+     * @param out - writer the instance is streamed to
+     * @param seed - seed of the random choices
+     */
+    public InstanceGenerator(Writer out, long seed) {
+        this.out = out;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Main function for the generator
+     */
+    public static void main(String[] args) throws IOException {
+        ArrayList<String> params = new ArrayList<>();
+        long seed = 0;
+        String outFile = null;
+        double clues = 0;
+
+        for (String arg : args) {
+            if (arg.startsWith("seed=")) {
+                seed = Long.parseLong(arg.substring(5));
+            } else if (arg.startsWith("out=")) {
+                outFile = arg.substring(4);
+            } else if (arg.startsWith("clues=")) {
+                clues = Double.parseDouble(arg.substring(6));
+            } else {
+                params.add(arg);
+            }
+        }
+
+        String type = params.isEmpty() ? "" : params.get(0);
+        int needed = type.equals("random") ? 5 : type.equals("queens") || type.equals("sudoku") ? 2 : 3;
+
+        if (params.size() != needed || !Arrays.asList("random", "queens", "langford", "sudoku").contains(type)) {
+            System.out.println("Usage: java InstanceGenerator random <n> <d> <density> <tightness> [seed=<s>] [out=<file>]");
+            System.out.println("       java InstanceGenerator queens <n> [out=<file>]");
+            System.out.println("       java InstanceGenerator langford <k> <n> [out=<file>]");
+            System.out.println("       java InstanceGenerator sudoku <m> [clues=<fraction>] [seed=<s>] [out=<file>]");
+            return;
+        }
+
+        Writer writer = new BufferedWriter(outFile == null
+                ? new OutputStreamWriter(System.out) : new FileWriter(outFile), 1 << 16);
+        InstanceGenerator generator = new InstanceGenerator(writer, seed);
+
+        if (type.equals("random")) {
+            generator.random(Integer.parseInt(params.get(1)), Integer.parseInt(params.get(2)),
+                    Double.parseDouble(params.get(3)), Double.parseDouble(params.get(4)));
+        } else if (type.equals("queens")) {
+            generator.queens(Integer.parseInt(params.get(1)));
+        } else if (type.equals("langford")) {
+            generator.langford(Integer.parseInt(params.get(1)), Integer.parseInt(params.get(2)));
+        } else {
+            generator.sudoku(Integer.parseInt(params.get(1)), clues);
+        }
+
+        writer.flush();
+        if (outFile != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Random binary CSP following model B: exactly round(density * n(n-1)/2) constraints,
+     * each forbidding exactly round(tightness * d^2) tuples
+     * @param n - number of variables
+     * @param d - domain size
+     * @param density - fraction of variable pairs constrained
+     * @param tightness - fraction of tuples forbidden by each constraint
+     */
+    public void random(int n, int d, double density, double tightness) throws IOException {
+        header("Random binary CSP (model B), n = " + n + " d = " + d
+                + " density = " + density + " tightness = " + tightness, n, 0, d - 1);
+
+        long pairs = (long) n * (n - 1) / 2;
+        long numConstraints = Math.round(density * pairs);
+        long numTuples = (long) d * d;
+        long numAllowed = numTuples - Math.round(tightness * numTuples);
+
+        //Selection sampling picks exactly numConstraints pairs in order without storing them
+        long seen = 0;
+        for (int i = 0; i < n && numConstraints > 0; i++) {
+            for (int j = i + 1; j < n && numConstraints > 0; j++, seen++) {
+                if (select(numConstraints, pairs - seen)) {
+                    numConstraints--;
+                    constraint(i, j);
+
+                    //The same sampling picks the allowed tuples
+                    long allowed = numAllowed;
+                    for (long t = 0; t < numTuples && allowed > 0; t++) {
+                        if (select(allowed, numTuples - t)) {
+                            allowed--;
+                            tuple((int) (t / d), (int) (t % d));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * N-Queens, one variable per row whose value is the column of its queen
+     * @param n - board size
+     */
+    public void queens(int n) throws IOException {
+        header(n + "-Queens.", n, 0, n - 1);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                constraint(i, j);
+
+                //Queens may not share a column or a diagonal
+                for (int a = 0; a < n; a++) {
+                    for (int b = 0; b < n; b++) {
+                        if (a != b && Math.abs(a - b) != j - i) {
+                            tuple(a, b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Langford's problem L(k, n): k copies of each number 1..n in a sequence, with i numbers
+     * between consecutive copies of i. Variable (i - 1) * k + j is the position of copy j of i.
+     * @param k - copies of each number
+     * @param n - largest number
+     */
+    public void langford(int k, int n) throws IOException {
+        int length = k * n;
+        header("Langford, k = " + k + " n = " + n, length, 1, length);
+
+        for (int v = 0; v < length; v++) {
+            for (int w = v + 1; w < length; w++) {
+                int number = v / k + 1;
+
+                if (w / k == v / k && w == v + 1) {
+                    //Consecutive copies of number are number + 1 positions apart
+                    constraint(v, w);
+                    for (int p = 1; p + number + 1 <= length; p++) {
+                        tuple(p, p + number + 1);
+                    }
+                } else if (w / k != v / k) {
+                    //Copies of different numbers take different positions
+                    constraint(v, w);
+                    for (int p = 1; p <= length; p++) {
+                        for (int q = 1; q <= length; q++) {
+                            if (p != q) {
+                                tuple(p, q);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sudoku on an m^2 by m^2 board with m by m boxes. Clues are taken from a
+     * randomly relabelled complete board, so the instance always has a solution.
+     * @param m - box size
+     * @param clues - fraction of cells given as clues
+     */
+    public void sudoku(int m, double clues) throws IOException {
+        int size = m * m;
+        int[] rows = boardPermutation(m);
+        int[] cols = boardPermutation(m);
+        int[] digits = permutation(size);
+
+        out.write("//Sudoku, " + size + " x " + size + ".\n\n");
+        out.write("// Number of variables:\n" + size * size + "\n\n");
+        out.write("// Domains of the variables: 1.." + size + " (inclusive), clues have a single value\n");
+
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (random.nextDouble() < clues) {
+                    //Standard pattern for a complete board, with rows, columns and digits shuffled
+                    int val = digits[(m * (rows[r] % m) + rows[r] / m + cols[c]) % size] + 1;
+                    out.write(val + ", " + val + "\n");
+                } else {
+                    out.write("1, " + size + "\n");
+                }
+            }
+        }
+
+        out.write("\n// constraints (vars indexed from 0, allowed tuples):\n");
+
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int cell = r * size + c;
+
+                //Later cells in the same row, the same column, then the rest of the box
+                for (int c2 = c + 1; c2 < size; c2++) {
+                    notEqual(cell, r * size + c2, size);
+                }
+                for (int r2 = r + 1; r2 < size; r2++) {
+                    notEqual(cell, r2 * size + c, size);
+                }
+                for (int r2 = r + 1; r2 < (r / m + 1) * m; r2++) {
+                    for (int c2 = (c / m) * m; c2 < (c / m + 1) * m; c2++) {
+                        if (c2 != c) {
+                            notEqual(cell, r2 * size + c2, size);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a not-equal constraint over values 1..size
+     */
+    private void notEqual(int v, int w, int size) throws IOException {
+        constraint(v, w);
+
+        for (int a = 1; a <= size; a++) {
+            for (int b = 1; b <= size; b++) {
+                if (a != b) {
+                    tuple(a, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects an item with probability needed / remaining, which selects exactly
+     * needed items from remaining when applied to each in turn
+     */
+    private boolean select(long needed, long remaining) {
+        return random.nextDouble() * remaining < needed;
+    }
+
+    /**
+     * @return random permutation of 0..size-1
+     */
+    private int[] permutation(int size) {
+        int[] permutation = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+
+        //Fisher-Yates shuffle
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = temp;
+        }
+
+        return permutation;
+    }
+
+    /**
+     * @return random permutation of the rows (or columns) of a Sudoku board which
+     * keeps rows in the same band together, so boxes stay boxes
+     */
+    private int[] boardPermutation(int m) {
+        int[] bands = permutation(m);
+        int[] lines = new int[m * m];
+
+        for (int b = 0; b < m; b++) {
+            int[] within = permutation(m);
+
+            for (int i = 0; i < m; i++) {
+                lines[b * m + i] = bands[b] * m + within[i];
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Writes the comment, number of variables and domains of an instance
+     */
+    private void header(String description, int n, int lb, int ub) throws IOException {
+        out.write("//" + description + "\n\n");
+        out.write("// Number of variables:\n" + n + "\n\n");
+        out.write("// Domains of the variables: " + lb + ".. (inclusive)\n");
+
+        for (int v = 0; v < n; v++) {
+            out.write(lb + ", " + ub + "\n");
+        }
+
+        out.write("\n// constraints (vars indexed from 0, allowed tuples):\n");
+    }
+
+    private void constraint(int v, int w) throws IOException {
+        out.write("c(" + v + ", " + w + ")\n");
+    }
+
+    private void tuple(int a, int b) throws IOException {
+        out.write(Integer.toString(a));
+        out.write(", ");
+        out.write(Integer.toString(b));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.*;
+
+/**
+ * Detects neighbourhood interchangeable values, i.e. values of a variable which
+ * have exactly the same supports in every constraint on that variable. Only one
+ * representative of each class needs to be searched, as any solution using the
+ * representative remains a solution when it is swapped for another class member.
+ */
+public class Interchangeability {
+    //Lower bound of the domain of each variable, used to offset values into arrays
+    private int[] lowerBounds;
+    //Size of the class of each value if it is a representative, otherwise 0
+    private int[][] classSizes;
+    //Number of values which are not representatives of their class
+    private long numCollapsed = 0;
+
+    /**
+     * Groups the values of each variable into neighbourhood interchangeable classes
+     * @param binaryCSP - problem whose values are grouped
+     */
+    public Interchangeability(BinaryCSP binaryCSP) {
+        int n = binaryCSP.getNoVariables();
+        lowerBounds = new int[n];
+        classSizes = new int[n][];
+
+        //Constraints incident to each variable
+        ArrayList<ArrayList<BinaryConstraint>> incident = new ArrayList<>();
+
+        for (int v = 0; v < n; v++) {
+            lowerBounds[v] = binaryCSP.getLB(v);
+            incident.add(new ArrayList<>());
+        }
+
+        for (BinaryConstraint bc : binaryCSP.getConstraints()) {
+            incident.get(bc.getFirstVar()).add(bc);
+            incident.get(bc.getSecondVar()).add(bc);
+        }
+
+        //Variables are processed one at a time so only one set of support rows is held
+        for (int v = 0; v < n; v++) {
+            groupValues(binaryCSP, v, incident.get(v));
+        }
+    }
+
+    /**
+     * Groups the values of a variable using its support rows in each incident constraint
+     * @param binaryCSP - problem containing the variable
+     * @param var - variable whose values are grouped
+     * @param incident - constraints on the variable
+     */
+    private void groupValues(BinaryCSP binaryCSP, int var, ArrayList<BinaryConstraint> incident) {
+        int size = binaryCSP.getUB(var) - lowerBounds[var] + 1;
+        classSizes[var] = new int[size];
+
+        //Support row of each value, one bit set per incident constraint
+        ArrayList<List<BitSet>> rows = new ArrayList<>(size);
+
+        for (int d = 0; d < size; d++) {
+            rows.add(new ArrayList<>(incident.size()));
+        }
+
+        for (BinaryConstraint bc : incident) {
+            boolean first = bc.getFirstVar() == var;
+            int otherVar = first ? bc.getSecondVar() : bc.getFirstVar();
+            int otherLB = binaryCSP.getLB(otherVar);
+            int otherUB = binaryCSP.getUB(otherVar);
+
+            for (List<BitSet> row : rows) {
+                row.add(new BitSet());
+            }
+
+            //Mark the supporting value of the other variable for each allowed tuple
+            for (BinaryTuple tuple : bc.getTuples()) {
+                int val = first ? tuple.getVal1() : tuple.getVal2();
+                int other = first ? tuple.getVal2() : tuple.getVal1();
+
+                //Tuples with a value outside either domain support nothing
+                if (val >= lowerBounds[var] && val - lowerBounds[var] < size && other >= otherLB && other <= otherUB) {
+                    List<BitSet> row = rows.get(val - lowerBounds[var]);
+                    row.get(row.size() - 1).set(other - otherLB);
+                }
+            }
+        }
+
+        //Maps each distinct support row (hashed, then compared) to the first value that had it
+        HashMap<List<BitSet>, Integer> representatives = new HashMap<>();
+
+        for (int d = 0; d < size; d++) {
+            Integer rep = representatives.putIfAbsent(rows.get(d), d);
+
+            if (rep == null) {
+                classSizes[var][d] = 1;
+            } else {
+                classSizes[var][rep]++;
+                numCollapsed++;
+            }
+        }
+    }
+
+    /**
+     * Checks if a value is the representative of its class
+     * @param var - variable of the value
+     * @param val - value to check
+     * @return whether val is searched for var
+     */
+    public boolean isRepresentative(int var, int val) {
+        return classSizes[var][val - lowerBounds[var]] > 0;
+    }
+
+    /**
+     * Gets the number of solutions a solution over representatives stands for
+     * @param assignments - complete assignment of representative values
+     * @return product of the class sizes of each assigned value
+     */
+    public long expansionFactor(Map<Integer, Integer> assignments) {
+        long factor = 1;
+
+        for (Map.Entry<Integer, Integer> assignment : assignments.entrySet()) {
+            int var = assignment.getKey();
+            factor *= classSizes[var][assignment.getValue() - lowerBounds[var]];
+        }
+
+        return factor;
+    }
+
+    /**
+     * @return number of values removed from the search by the grouping
+     */
+    public long getNumCollapsed() {
+        return numCollapsed;
+    }
+}
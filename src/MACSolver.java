@@ -1,7 +1,5 @@
 import java.util.*;
 
-import static java.lang.System.exit;
-
 /**
  * MACSolver subclass of Solver to implement the maintaining arc consistency algorithm
  */
@@ -15,21 +13,9 @@ public class MACSolver extends Solver {
         super(binaryCSP, heuristic);
     }
 
-    /**
-     * Main function of MACSolver
-     */
-    public void solve() {
-        LinkedHashSet<Integer> varList = new LinkedHashSet<>();
-
-        //Add variables to hash set for constant access
-        for (int v = 0; v < binaryCSP.getNoVariables(); v++) {
-            varList.add(v);
-        }
-
-        //Run FC algorithm on unassigned variables
-        startTime = System.nanoTime();
+    @Override
+    protected void search(LinkedHashSet<Integer> varList) {
         MAC3(varList);
-        System.out.println(solution);
     }
 
     /**
@@ -37,43 +23,58 @@ public class MACSolver extends Solver {
      * @param varList - list of unassigned variables
      */
     public void MAC3(LinkedHashSet<Integer> varList) {
-        numNodes++;
+        //Stop exploring if a limit has been reached, leaving the node uncounted as it is
+        //searched (and counted) when a checkpoint of the search is resumed
+        if (limitReached()) {
+            return;
+        }
+
+        countNode();
+
+        checkpointIfDue();
 
-        //Select variable to assign value
-        int var = selectVar(varList);
-        int val = selectVal(domains.get(var));
+        //Select variable to assign value, or follow the checkpoint being resumed
+        int[] decision = decide(varList);
+        int var = decision[0];
+        int val = decision[1];
 
         Stack<BinaryTuple> pruned = new Stack<>();
 
-        //Assign variable selected value
-        assign(var, val, pruned);
-
-        //If all variables have been assigned
-        if (completeAssignment()) {
-            //Print the solution and exit
-            printSolution();
-            printResults();
-            exit(0);
-            //Re-establish arc consistency after assigning variable a value
-        } else if (AC3(pruned)) {
-            //Create subset of varList without var
-            LinkedHashSet<Integer> subset = (LinkedHashSet<Integer>) varList.clone();
-            subset.remove(var);
-
-            //Assign next variable from subset of variables
-            // as one of the variables now has an assigned value
-            MAC3(subset);
+        //Skip the left branch if a resumed checkpoint already finished it
+        if (decision[2] != Checkpoint.RIGHT) {
+            //Assign variable selected value
+            assign(var, val, pruned);
+
+            //If a symmetric assignment is searched instead, skip the left branch
+            if (isLexLeader()) {
+                //If all variables have been assigned
+                if (completeAssignment()) {
+                    //Set solution, stopping unless enumerating
+                    recordSolution();
+                    //Re-establish arc consistency after assigning variable a value
+                } else if (AC3(pruned)) {
+                    //Create subset of varList without var
+                    LinkedHashSet<Integer> subset = (LinkedHashSet<Integer>) varList.clone();
+                    subset.remove(var);
+
+                    //Assign next variable from subset of variables
+                    // as one of the variables now has an assigned value
+                    MAC3(subset);
+                }
+            }
+            //If not consistent
+            //Undo pruning of variables
+            undoPruning(pruned);
+            //Unassign value of variable
+            unassign(var);
         }
-        //If not consistent
-        //Undo pruning of variables
-        undoPruning(pruned);
-        //Unassign value of variable
-        unassign(var);
         //Remove value from domain of variable
         remove(val, var);
 
-        //If domain of variable is not empty
-        if (!domains.get(var).isEmpty()) {
+        //If domain of variable is not empty, the search has not stopped
+        //and the right branch was not handed to another search
+        if (!stopped && !domains.get(var).isEmpty() && decision[2] != Checkpoint.LEFT_ONLY) {
+            decision[2] = Checkpoint.RIGHT;
             //Establish arc consistency of right hand branch
             if (AC3(pruned)) {
                 //Assign next variable
@@ -84,6 +85,7 @@ public class MACSolver extends Solver {
         }
         //...and restore value of variable
         restore(val, var);
+        undecide();
     }
 
     /**
@@ -94,7 +96,12 @@ public class MACSolver extends Solver {
     public boolean AC3(Stack<BinaryTuple> pruned) {
         //Queue to store arcs on
 
-        Queue<BinaryConstraint> queue = new LinkedList<>(binaryCSP.getConstraints());
+        Queue<BinaryConstraint> queue = new LinkedList<>();
+
+        //Start with every arc in both directions
+        for (LinkedHashMap<Integer, BinaryConstraint> arcs : constraints.values()) {
+            queue.addAll(arcs.values());
+        }
         //Map used to check if value is in the queue in constant time
         HashMap<Integer, HashMap<Integer, Integer>> queueLookup = new HashMap<>();
 
@@ -103,6 +110,10 @@ public class MACSolver extends Solver {
             try {
                 //Remove arc(xi, xj) in queue
                 BinaryConstraint topConstraint = ((LinkedList<BinaryConstraint>) queue).pop();
+
+                if (metrics != null) {
+                    metrics.queuePop(queue.size());
+                }
                 int var1 = topConstraint.getFirstVar();
                 int var2 = topConstraint.getSecondVar();
 
@@ -125,21 +136,22 @@ public class MACSolver extends Solver {
                     int xi = topConstraint.getSecondVar();
                     int xj = topConstraint.getFirstVar();
 
-                    //Add to queue all arcs(xh, xi) where (h != j)
+                    //Add to queue all arcs(xh, xi) where (h != j), stored as the
+                    //constraint revising xh against xi
                     for (int xh = 0; xh < binaryCSP.getNoVariables(); xh++) {
                         //Ensures h not equal to j
-                        if (xh != xj && !(queueLookup.containsKey(xh) && queueLookup.get(xh).containsKey(xi))) {
+                        if (xh != xj && !(queueLookup.containsKey(xi) && queueLookup.get(xi).containsKey(xh))) {
                             //If arc(xh, xi) is not already in the queue
-                            if (!(arc(xh, xi) == null)) {
+                            if (!(arc(xi, xh) == null)) {
                                 //Add to queue
-                                ((LinkedList<BinaryConstraint>) queue).push(arc(xh, xi));
+                                ((LinkedList<BinaryConstraint>) queue).push(arc(xi, xh));
 
-                                if (!queueLookup.containsKey(xh)) {
-                                    queueLookup.put(xh, new HashMap<>());
+                                if (!queueLookup.containsKey(xi)) {
+                                    queueLookup.put(xi, new HashMap<>());
                                 }
 
-                                //Adds (xh, xi) as keys of queueLookup to provide future constant access
-                                queueLookup.get(xh).put(xi, 0);
+                                //Adds (xi, xh) as keys of queueLookup to provide future constant access
+                                queueLookup.get(xi).put(xh, 0);
                             }
                         }
                     }
@@ -148,6 +160,11 @@ public class MACSolver extends Solver {
                 //Return false if a variable domain becomes empty
                 return false;
             }
+
+            //Return false if the search was stopped during revision
+            if (stopped) {
+                return false;
+            }
         }
 
         //returns true if arcs are made consistent
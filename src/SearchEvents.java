@@ -0,0 +1,49 @@
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events emitted by solvers with metrics enabled.
+ * Events are only built and committed while a recording has them enabled.
+ */
+public final class SearchEvents {
+    private SearchEvents() {
+    }
+
+    /**
+     * Emitted when a solution is found
+     */
+    @Name("cs4402.Solution")
+    @Label("Solution")
+    @Category("CS4402 Solver")
+    @StackTrace(false)
+    public static class SolutionEvent extends Event {
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Solutions")
+        long solutions;
+
+        @Label("Depth")
+        int depth;
+    }
+
+    /**
+     * Emitted periodically while searching
+     */
+    @Name("cs4402.Progress")
+    @Label("Search Progress")
+    @Category("CS4402 Solver")
+    @StackTrace(false)
+    public static class ProgressEvent extends Event {
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Arc Revisions")
+        long arcRevisions;
+
+        @Label("Solutions")
+        long solutions;
+
+        @Label("Depth")
+        int depth;
+    }
+}
@@ -0,0 +1,309 @@
+import java.util.*;
+
+/**
+ * Detailed counters recorded during search. Each solver records into its own
+ * SearchMetrics without synchronisation, so solvers running on different threads
+ * never contend; merge combines the metrics of several solvers afterwards.
+ * A solver with no metrics set skips recording entirely.
+ */
+public class SearchMetrics {
+    //Progress events are emitted every 1024 nodes
+    private static final long PROGRESS_INTERVAL = 1024;
+
+    private long numConstraintChecks = 0;
+    private long numRevisions = 0;
+    private long numPrunedValues = 0;
+    //Revisions by number of values pruned: 0, 1, 2-3, 4-7, ... (bucket b holds 2^(b-1) to 2^b - 1)
+    private long[] prunedHistogram = new long[1];
+    private long numQueuePops = 0;
+    private long totalQueueLength = 0;
+    private long maxQueueLength = 0;
+    private long numSolutions = 0;
+
+    //Nodes and backtracks (domain wipe-outs) indexed by number of assigned variables
+    private long[] nodesPerDepth = new long[0];
+    private long[] backtracksPerDepth = new long[0];
+    //Wipe-outs caused by each arc, keyed by first and second variable packed into a long
+    private ArcCounts wipeOuts = new ArcCounts();
+
+    /**
+     * Records a node of the search tree
+     * @param depth - number of assigned variables
+     * @param numNodes - nodes explored so far, used to pace progress events
+     * @param numArcRevisions - arc revisions so far
+     */
+    public void node(int depth, long numNodes, long numArcRevisions) {
+        nodesPerDepth = grow(nodesPerDepth, depth);
+        nodesPerDepth[depth]++;
+
+        if (numNodes % PROGRESS_INTERVAL == 0) {
+            SearchEvents.ProgressEvent event = new SearchEvents.ProgressEvent();
+            if (event.isEnabled()) {
+                event.nodes = numNodes;
+                event.arcRevisions = numArcRevisions;
+                event.solutions = numSolutions;
+                event.depth = depth;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records an arc revision
+     * @param checks - constraint checks made
+     * @param pruned - values pruned from the domain
+     */
+    public void revision(long checks, int pruned) {
+        numConstraintChecks += checks;
+        numRevisions++;
+        numPrunedValues += pruned;
+
+        int bucket = 32 - Integer.numberOfLeadingZeros(pruned);
+        prunedHistogram = grow(prunedHistogram, bucket);
+        prunedHistogram[bucket]++;
+    }
+
+    /**
+     * Records a revision which emptied a domain, failing the current branch
+     * @param constraint - arc that was revised
+     * @param depth - number of assigned variables
+     */
+    public void wipeOut(BinaryConstraint constraint, int depth) {
+        backtracksPerDepth = grow(backtracksPerDepth, depth);
+        backtracksPerDepth[depth]++;
+        wipeOuts.add(((long) constraint.getFirstVar() << 32) | constraint.getSecondVar(), 1);
+    }
+
+    /**
+     * Records the length of the AC3 queue when an arc is taken from it
+     * @param length - number of arcs left in the queue
+     */
+    public void queuePop(int length) {
+        numQueuePops++;
+        totalQueueLength += length;
+        maxQueueLength = Math.max(maxQueueLength, length);
+    }
+
+    /**
+     * Records a solution
+     * @param numNodes - nodes explored so far
+     * @param depth - number of assigned variables
+     */
+    public void solution(long numNodes, int depth) {
+        numSolutions++;
+
+        SearchEvents.SolutionEvent event = new SearchEvents.SolutionEvent();
+        if (event.isEnabled()) {
+            event.nodes = numNodes;
+            event.solutions = numSolutions;
+            event.depth = depth;
+            event.commit();
+        }
+    }
+
+    /**
+     * Adds the counters of another solver's metrics to these
+     * @param other - metrics to add
+     */
+    public void merge(SearchMetrics other) {
+        numConstraintChecks += other.numConstraintChecks;
+        numRevisions += other.numRevisions;
+        numPrunedValues += other.numPrunedValues;
+        numQueuePops += other.numQueuePops;
+        totalQueueLength += other.totalQueueLength;
+        maxQueueLength = Math.max(maxQueueLength, other.maxQueueLength);
+        numSolutions += other.numSolutions;
+        prunedHistogram = add(prunedHistogram, other.prunedHistogram);
+        nodesPerDepth = add(nodesPerDepth, other.nodesPerDepth);
+        backtracksPerDepth = add(backtracksPerDepth, other.backtracksPerDepth);
+
+        for (int i = 0; i < other.wipeOuts.keys.length; i++) {
+            if (other.wipeOuts.keys[i] != ArcCounts.EMPTY) {
+                wipeOuts.add(other.wipeOuts.keys[i], other.wipeOuts.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Extends an array so index is in range
+     */
+    private static long[] grow(long[] counts, int index) {
+        return index < counts.length ? counts : Arrays.copyOf(counts, index + 1);
+    }
+
+    /**
+     * Adds two arrays of counts element-wise
+     */
+    private static long[] add(long[] counts, long[] other) {
+        long[] sum = grow(counts, other.length - 1);
+
+        for (int i = 0; i < other.length; i++) {
+            sum[i] += other[i];
+        }
+
+        return sum;
+    }
+
+    public long getNumConstraintChecks() {
+        return numConstraintChecks;
+    }
+
+    public long getNumRevisions() {
+        return numRevisions;
+    }
+
+    public long getNumPrunedValues() {
+        return numPrunedValues;
+    }
+
+    public long[] getPrunedHistogram() {
+        return prunedHistogram.clone();
+    }
+
+    public long getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /**
+     * @return mean length of the AC3 queue when an arc is taken from it
+     */
+    public double getMeanQueueLength() {
+        return numQueuePops == 0 ? 0 : (double) totalQueueLength / numQueuePops;
+    }
+
+    public long[] getNodesPerDepth() {
+        return nodesPerDepth.clone();
+    }
+
+    public long[] getBacktracksPerDepth() {
+        return backtracksPerDepth.clone();
+    }
+
+    /**
+     * @return wipe-outs caused by each arc, keyed by "first,second" variable
+     */
+    public Map<String, Long> getWipeOuts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+
+        for (long key : wipeOuts.sortedKeys()) {
+            result.put((key >>> 32) + "," + (int) key, wipeOuts.get(key));
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Converts the metrics to a single line JSON object
+     * @return JSON metrics
+     */
+    public String toJson() {
+        StringBuilder result = new StringBuilder();
+        result.append("{\"constraint_checks\":").append(numConstraintChecks);
+        result.append(",\"revisions\":").append(numRevisions);
+        result.append(",\"pruned_values\":").append(numPrunedValues);
+        result.append(",\"pruned_histogram\":").append(Arrays.toString(prunedHistogram).replace(" ", ""));
+        result.append(",\"queue_pops\":").append(numQueuePops);
+        result.append(",\"mean_queue_length\":").append(String.format(Locale.ROOT, "%.2f", getMeanQueueLength()));
+        result.append(",\"max_queue_length\":").append(maxQueueLength);
+        result.append(",\"solutions\":").append(numSolutions);
+        result.append(",\"nodes_per_depth\":").append(Arrays.toString(nodesPerDepth).replace(" ", ""));
+        result.append(",\"backtracks_per_depth\":").append(Arrays.toString(backtracksPerDepth).replace(" ", ""));
+        result.append(",\"wipe_outs\":{");
+
+        //Keys are only formatted here, so recording a wipe-out allocates nothing
+        String separator = "";
+        for (long key : wipeOuts.sortedKeys()) {
+            result.append(separator).append('"').append(key >>> 32).append(',').append((int) key);
+            result.append("\":").append(wipeOuts.get(key));
+            separator = ",";
+        }
+
+        result.append("}}");
+        return result.toString();
+    }
+
+    /**
+     * Counts keyed by arc in an open addressing table of primitives, so adding to
+     * an existing count neither boxes nor allocates
+     */
+    private static final class ArcCounts {
+        //Arc keys are non-negative, as variables are
+        static final long EMPTY = -1;
+
+        long[] keys = newKeys(16);
+        long[] counts = new long[16];
+        int size = 0;
+
+        void add(long key, long amount) {
+            int i = find(keys, key);
+
+            if (keys[i] == EMPTY) {
+                //Keep the table at most half full so probes stay short
+                if (++size * 2 > keys.length) {
+                    grow();
+                    i = find(keys, key);
+                }
+                keys[i] = key;
+            }
+
+            counts[i] += amount;
+        }
+
+        long get(long key) {
+            int i = find(keys, key);
+            return keys[i] == EMPTY ? 0 : counts[i];
+        }
+
+        /**
+         * @return keys in ascending order, so output is ordered by first then second variable
+         */
+        long[] sortedKeys() {
+            long[] sorted = new long[size];
+            int n = 0;
+
+            for (long key : keys) {
+                if (key != EMPTY) {
+                    sorted[n++] = key;
+                }
+            }
+
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            keys = newKeys(oldKeys.length * 2);
+            counts = new long[oldKeys.length * 2];
+
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = find(keys, oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    counts[i] = oldCounts[j];
+                }
+            }
+        }
+
+        /**
+         * @return slot holding key, or the empty slot where it belongs (linear probing)
+         */
+        private static int find(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+
+            return i;
+        }
+
+        private static long[] newKeys(int length) {
+            long[] keys = new long[length];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -1,7 +1,6 @@
+import java.io.IOException;
 import java.util.*;
 
-import static java.lang.System.exit;
-
 /**
  * Solver base class from which FC and MAC inherit
  */
@@ -19,8 +18,53 @@ public abstract class Solver {
     protected Heuristic heuristic;
 
     protected String solution;
+    //Value of each variable in the first solution found
+    protected int[] solutionValues;
+
+    //Whether every solution is counted rather than stopping at the first
+    protected boolean enumerate = false;
+    //Interchangeable value classes, null if values are not grouped
+    protected Interchangeability interchangeability;
+    private boolean useInterchangeability = false;
+    //Symmetries broken during search, null if none are broken
+    protected Symmetries symmetries;
+    //Whether symmetries are detected before search, within the limits of the search
+    private boolean detectSymmetries = false;
+    //Detailed search counters, null if they are not recorded
+    protected SearchMetrics metrics;
+
+    //Limits on the search, 0 if unlimited
+    private long nodeLimit = 0;
+    private long revisionLimit = 0;
+    //Counts when this run started, as the node and revision limits apply to each run of a resumed search
+    private long startNodes = 0;
+    private long startRevisions = 0;
+    private long timeLimitMS = 0;
+    private long deadline = 0;
+    //Handle to cancel the search from another thread, null if it can not be cancelled
+    private Cancellation cancellation;
+
+    //Decisions {var, val, branch} from the root to the current node, see Checkpoint
+    protected ArrayList<int[]> path = new ArrayList<>();
+    //File the search is periodically saved to, null if it is not saved
+    private String checkpointFile;
+    private long checkpointIntervalMS = 60000;
+    private long nextCheckpoint = 0;
+    //Path when the search was stopped, so it can be saved once the search has unwound
+    private ArrayList<int[]> stopPath = new ArrayList<>();
+    //Checkpoint to resume from, null to search from the root
+    private Checkpoint resumeFrom;
+    //Decisions still to follow to return to the checkpointed node, null once they have been followed
+    private List<int[]> replay;
+    private String fingerprint;
+
+    //Set once the search should unwind without exploring further
+    protected boolean stopped = false;
+    protected Status status;
 
     protected long numNodes = 0;
+    protected long numSolutions = 0;
+    protected long numSolutionsFound = 0;
     protected long numArcRevisions = 0;
     protected long startTime = 0;
     protected long endTime = 0;
@@ -44,28 +88,487 @@ public abstract class Solver {
             for (int d = binaryCSP.getLB(v); d <= binaryCSP.getUB(v); d++) {
                 this.domains.get(v).add(d);
             }
+        }
 
-            //For each constraint
-            for (BinaryConstraint bc : binaryCSP.getConstraints()) {
-                //Add entry in map for constraints relating to variable
-                if (!constraints.containsKey(bc.getFirstVar())) {
-                    constraints.put(bc.getFirstVar(), new LinkedHashMap<>());
-                }
+        //For each constraint
+        for (BinaryConstraint bc : binaryCSP.getConstraints()) {
+            //Store the arc in both directions so neither needs to be reversed during search
+            addArc(bc);
+            addArc(bc.reversedCopy());
+        }
+    }
+
+    /**
+     * Adds an arc to the constraint map under its first and second variable
+     * @param bc - arc to add
+     */
+    private void addArc(BinaryConstraint bc) {
+        //Add entry in map for constraints relating to variable
+        if (!constraints.containsKey(bc.getFirstVar())) {
+            constraints.put(bc.getFirstVar(), new LinkedHashMap<>());
+        }
+
+        //Add entry to inner map for second variable in constraint
+        constraints.get(bc.getFirstVar()).put(bc.getSecondVar(), bc);
+    }
+
+    /**
+     * Main function of the solver
+     * @return SAT if a solution was found, UNSAT if there is none, LIMIT if a limit
+     * was reached first or CANCELLED if the search was cancelled first
+     */
+    public Status solve() {
+        LinkedHashSet<Integer> varList = new LinkedHashSet<>();
+
+        //Add variables to hash set for constant access
+        for (int v = 0; v < binaryCSP.getNoVariables(); v++) {
+            varList.add(v);
+        }
+
+        startTime = System.nanoTime();
+        deadline = startTime + timeLimitMS * 1000000;
+        nextCheckpoint = startTime + checkpointIntervalMS * 1000000;
+        preprocess();
+
+        //A search stopped while preprocessing, e.g. during symmetry detection, never started
+        boolean started = !stopped;
+
+        if (started && (checkpointFile != null || resumeFrom != null)) {
+            fingerprint = Checkpoint.fingerprint(binaryCSP);
+        }
+
+        if (started && resumeFrom != null) {
+            resume();
+        }
+
+        //Run search algorithm on unassigned variables, unless a finished search was resumed
+        if (started && status == null) {
+            search(varList);
+
+            if (replay != null && !stopped) {
+                throw new IllegalStateException("Search did not reach the checkpointed node");
+            }
+        }
+        endTime = System.nanoTime();
+
+        if (status == null) {
+            status = numSolutionsFound > 0 ? Status.SAT : Status.UNSAT;
+        }
+
+        //A search which never started leaves any checkpoint as it was
+        if (checkpointFile != null && started) {
+            //A finished search is saved with its status, a stopped one with the path to resume from
+            boolean finished = status == Status.SAT || status == Status.UNSAT;
+            writeCheckpoint(finished ? new ArrayList<>() : stopPath, finished ? status : null);
+        }
+
+        return status;
+    }
+
+    /**
+     * Restores the counts of the checkpoint being resumed and the decisions leading back to its node
+     */
+    private void resume() {
+        if (!resumeFrom.instance.equals(fingerprint) || !resumeFrom.config.equals(getConfig())) {
+            throw new IllegalStateException("Checkpoint was written for a different problem or options");
+        }
+
+        numNodes = resumeFrom.numNodes;
+        numArcRevisions = resumeFrom.numArcRevisions;
+        numSolutions = resumeFrom.numSolutions;
+        numSolutionsFound = resumeFrom.numSolutionsFound;
+        status = resumeFrom.status;
+
+        startNodes = numNodes;
+        startRevisions = numArcRevisions;
+
+        if (!resumeFrom.path.isEmpty()) {
+            replay = resumeFrom.path;
+        }
+    }
+
+    /**
+     * @return solver and options which decide the shape of the search tree, saved with checkpoints
+     */
+    private String getConfig() {
+        return getClass().getSimpleName() + " " + heuristic.name() + (enumerate ? " all" : "")
+                + (interchangeability != null ? " ni" : "")
+                + (symmetries != null ? " sym " + symmetries.fingerprint() : "");
+    }
+
+    /**
+     * Makes the decision at the current node, either the next one of the checkpoint
+     * being resumed or a new left branch chosen by the heuristics, and adds it to the path
+     * @param varList - list of unassigned variables
+     * @return decision {var, val, branch}, whose branch is updated as the node is searched
+     */
+    protected int[] decide(LinkedHashSet<Integer> varList) {
+        int[] decision;
+
+        if (replay != null) {
+            int i = path.size();
+
+            //The node must be reached by the branch the checkpoint took from its parent
+            if (i >= replay.size() || (i > 0 && path.get(i - 1)[2] != replay.get(i - 1)[2])) {
+                throw new IllegalStateException("Search left the checkpoint path at decision " + i);
+            }
+
+            decision = replay.get(i).clone();
+            if (i + 1 == replay.size()) {
+                replay = null;
+            }
+        } else {
+            int var = selectVar(varList);
+            decision = new int[] {var, selectVal(domains.get(var)), Checkpoint.LEFT};
+        }
+
+        path.add(decision);
+        return decision;
+    }
+
+    /**
+     * Removes the decision of the current node from the path once both branches have been searched
+     */
+    protected void undecide() {
+        path.remove(path.size() - 1);
+    }
+
+    /**
+     * Saves the search if the checkpoint interval has passed, called once per node
+     * before its decision is made
+     */
+    protected void checkpointIfDue() {
+        //The checkpoint being resumed already holds the path until its node is reached again
+        if (checkpointFile != null && replay == null && System.nanoTime() - nextCheckpoint > 0) {
+            writeCheckpoint(currentPath(), null);
+            nextCheckpoint = System.nanoTime() + checkpointIntervalMS * 1000000;
+        }
+    }
+
+    /**
+     * @return copy of the path to the current node, followed by the rest of the path
+     * of the checkpoint being resumed if its node has not been reached yet
+     */
+    private ArrayList<int[]> currentPath() {
+        ArrayList<int[]> decisions = new ArrayList<>();
+
+        for (int[] decision : path) {
+            decisions.add(decision.clone());
+        }
+
+        //Decisions followed so far have the same branches as the checkpoint
+        if (replay != null) {
+            for (int i = path.size(); i < replay.size(); i++) {
+                decisions.add(replay.get(i).clone());
+            }
+        }
+
+        return decisions;
+    }
+
+    /**
+     * Writes the counts so far and a path to the checkpoint file
+     * @param decisions - path to resume from
+     * @param finalStatus - status of a finished search, or null if it can be resumed
+     */
+    private void writeCheckpoint(List<int[]> decisions, Status finalStatus) {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.instance = fingerprint;
+        checkpoint.config = getConfig();
+        checkpoint.status = finalStatus;
+        checkpoint.numNodes = numNodes;
+        checkpoint.numArcRevisions = numArcRevisions;
+        checkpoint.numSolutions = numSolutions;
+        checkpoint.numSolutionsFound = numSolutionsFound;
+
+        checkpoint.path.addAll(decisions);
+
+        try {
+            checkpoint.write(checkpointFile);
+        } catch (IOException e) {
+            //A failed checkpoint should not end a long search, the next one may succeed
+            System.err.println("Could not write checkpoint " + checkpointFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Searches for solutions, returning early once stopped is set
+     * @param varList - list of unassigned variables
+     */
+    protected abstract void search(LinkedHashSet<Integer> varList);
+
+    /**
+     * Checks the limits and cancellation, called once per node and once per arc revision
+     * @return whether the search has been stopped
+     */
+    protected boolean limitReached() {
+        if (stopped) {
+            return true;
+        }
+
+        if (cancellation != null && cancellation.isCancelled()) {
+            status = Status.CANCELLED;
+            stopped = true;
+        } else if ((nodeLimit > 0 && numNodes - startNodes > nodeLimit)
+                || (revisionLimit > 0 && numArcRevisions - startRevisions > revisionLimit)
+                //The clock is read on every check, as it costs little next to a revision
+                || (timeLimitMS > 0 && System.nanoTime() - deadline > 0)) {
+            status = Status.LIMIT;
+            stopped = true;
+        }
+
+        //Keep the path where the search stopped, as it is lost while the search unwinds
+        if (stopped) {
+            stopPath = currentPath();
+        }
+
+        return stopped;
+    }
+
+    /**
+     * Sets the maximum number of nodes in the search tree, counted from where a resumed search starts
+     * @param nodeLimit - node limit, 0 for no limit
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Sets the metrics object recording detailed counters during search
+     * @param metrics - metrics to record into, or null to not record them
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return metrics recorded during search, or null if they were not recorded
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Counts a node of the search tree, called once per node
+     */
+    protected void countNode() {
+        //Nodes on the way back to a resumed checkpoint were counted by the run which saved it
+        if (replay != null) {
+            return;
+        }
+
+        numNodes++;
+
+        if (metrics != null) {
+            metrics.node(assignments.size(), numNodes, numArcRevisions);
+        }
+    }
+
+    /**
+     * Sets the maximum number of arc revisions, counted from where a resumed search starts
+     * @param revisionLimit - arc revision limit, 0 for no limit
+     */
+    public void setRevisionLimit(long revisionLimit) {
+        this.revisionLimit = revisionLimit;
+    }
+
+    /**
+     * Sets the handle used to cancel the search from another thread
+     * @param cancellation - cancellation handle, or null if the search can not be cancelled
+     */
+    public void setCancellation(Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Sets the maximum time spent solving
+     * @param timeLimitMS - time limit in milliseconds, 0 for no limit
+     */
+    public void setTimeLimit(long timeLimitMS) {
+        this.timeLimitMS = timeLimitMS;
+    }
+
+    /**
+     * Sets the file the search is saved to periodically and when it stops
+     * @param checkpointFile - checkpoint file, or null to not save the search
+     * @param checkpointIntervalMS - time between checkpoints in milliseconds
+     */
+    public void setCheckpoint(String checkpointFile, long checkpointIntervalMS) {
+        this.checkpointFile = checkpointFile;
+        this.checkpointIntervalMS = checkpointIntervalMS;
+    }
+
+    /**
+     * Sets a checkpoint to resume the search from, written for the same problem and options
+     * @param resumeFrom - checkpoint to resume, or null to search from the root
+     */
+    public void setResume(Checkpoint resumeFrom) {
+        this.resumeFrom = resumeFrom;
+    }
+
+    /**
+     * Sets whether all solutions are counted instead of stopping at the first
+     * @param enumerate - whether to enumerate solutions
+     */
+    public void setEnumerate(boolean enumerate) {
+        this.enumerate = enumerate;
+    }
+
+    /**
+     * Sets whether neighbourhood interchangeable values are collapsed before search
+     * @param useInterchangeability - whether to group interchangeable values
+     */
+    public void setInterchangeability(boolean useInterchangeability) {
+        this.useInterchangeability = useInterchangeability;
+    }
+
+    /**
+     * Sets the symmetries broken during search with lex-leader constraints
+     * @param symmetries - symmetries of the problem, or null to not break symmetries
+     */
+    public void setSymmetries(Symmetries symmetries) {
+        this.symmetries = symmetries;
+    }
+
+    /**
+     * Sets whether symmetries are detected when solving starts and broken during search.
+     * Detection counts towards the time limit and stops if the search is cancelled.
+     * @param detectSymmetries - whether to detect symmetries
+     */
+    public void setDetectSymmetries(boolean detectSymmetries) {
+        this.detectSymmetries = detectSymmetries;
+    }
+
+    /**
+     * Simplifies the problem before search begins
+     */
+    protected void preprocess() {
+        if (detectSymmetries) {
+            symmetries = Symmetries.detect(binaryCSP, this::limitReached);
+        }
 
-                //Add entry to inner map for second variable in constraint
-                constraints.get(bc.getFirstVar()).put(bc.getSecondVar(), bc);
+        //Lex-leaders may use values which are not representatives, so both can not be used
+        if (useInterchangeability && symmetries != null) {
+            System.err.println("Interchangeability is not used while breaking symmetries");
+        } else if (useInterchangeability) {
+            interchangeability = new Interchangeability(binaryCSP);
+
+            //Only search one representative value of each class
+            for (int v = 0; v < binaryCSP.getNoVariables(); v++) {
+                for (int d = binaryCSP.getLB(v); d <= binaryCSP.getUB(v); d++) {
+                    if (!interchangeability.isRepresentative(v, d)) {
+                        remove(d, v);
+                    }
+                }
             }
         }
     }
 
-    protected void printResults() {
-        long endTime = System.nanoTime();
+    /**
+     * Counts the current complete assignment as a solution, along with (when enumerating)
+     * every solution obtained by swapping in interchangeable values or by symmetry
+     */
+    protected void recordSolution() {
+        numSolutionsFound++;
+
+        if (metrics != null) {
+            metrics.solution(numNodes, assignments.size());
+        }
+
+        //Keep the first solution and stop unless enumerating
+        if (!enumerate) {
+            solution = toString();
+            solutionValues = new int[binaryCSP.getNoVariables()];
+            for (int v = 0; v < solutionValues.length; v++) {
+                solutionValues[v] = assignments.get(v);
+            }
+            //Only the solution found is counted, not the solutions it stands for
+            numSolutions++;
+            stopped = true;
+            return;
+        }
+
+        if (symmetries != null) {
+            //Only one solution of each orbit is found when the whole group is broken
+            if (symmetries.isComplete()) {
+                numSolutions += symmetries.orbitSize(assignments);
+            }
+        } else if (interchangeability == null) {
+            numSolutions++;
+        } else {
+            numSolutions += interchangeability.expansionFactor(assignments);
+        }
+    }
 
-        long durationMS = (endTime - startTime) / 1000000;
+    /**
+     * Checks the current assignment against the symmetry breaking constraints
+     * @return false if a symmetric assignment is searched instead of this one
+     */
+    protected boolean isLexLeader() {
+        return symmetries == null || symmetries.isLexLeader(assignments);
+    }
 
-        System.out.println("Time Taken: " + durationMS + "ms");
+    public void printResults() {
+        System.out.println("Status: " + status);
+        System.out.println("Time Taken: " + getDurationMS() + "ms");
         System.out.println("Nodes in search tree: " + numNodes);
         System.out.println("Arc revisions: " + numArcRevisions);
+
+        if (interchangeability != null) {
+            System.out.println("Interchangeable values collapsed: " + interchangeability.getNumCollapsed());
+        }
+
+        if (symmetries != null) {
+            System.out.println("Symmetry generators: " + symmetries.getNoGenerators());
+            System.out.println("Symmetry group size: "
+                    + (symmetries.isComplete() ? symmetries.getGroupSize() : "too large, breaking generators only"));
+        }
+
+        if (enumerate) {
+            if (symmetries == null || symmetries.isComplete()) {
+                System.out.println("Solutions: " + numSolutions);
+            }
+
+            if (symmetries != null) {
+                System.out.println("Solutions up to symmetry: " + numSolutionsFound);
+            } else if (interchangeability != null) {
+                System.out.println("Solutions up to interchangeability: " + numSolutionsFound);
+            }
+        }
+    }
+
+    /**
+     * @return first solution found, or null if none was kept
+     */
+    public String getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return value of each variable in the first solution found, or null if none was kept
+     */
+    public int[] getSolutionValues() {
+        return solutionValues == null ? null : solutionValues.clone();
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getDurationMS() {
+        return (endTime - startTime) / 1000000;
+    }
+
+    public long getNumNodes() {
+        return numNodes;
+    }
+
+    public long getNumArcRevisions() {
+        return numArcRevisions;
+    }
+
+    public long getNumSolutions() {
+        return numSolutions;
     }
 
     /**
@@ -78,11 +581,6 @@ public abstract class Solver {
         //If constraint exists for (xi, xj), return it
         if (constraints.containsKey(var) && constraints.get(var).containsKey(futureVar)) {
             return constraints.get(var).get(futureVar);
-        } else if (constraints.containsKey(futureVar) && constraints.get(futureVar).containsKey(var)) {
-            //Otherwise find equivalent constraint, modify it accordingly and return it
-            BinaryConstraint constraint = constraints.get(futureVar).get(var);
-            constraint.reverse();
-            return constraint;
         } else {
             //No constraint between xi and xj
             return null;
@@ -99,8 +597,15 @@ public abstract class Solver {
     protected boolean revise(BinaryConstraint constraint, Stack<BinaryTuple> pruned) throws DomainEmptyException {
         numArcRevisions++;
 
+        //Leave the domain unchanged if the search has been stopped, callers check stopped
+        if (limitReached()) {
+            return false;
+        }
+
         boolean changed = false;
         int Di_index = constraint.getSecondVar();
+        long checks = 0;
+        int numPruned = 0;
 
         //Get domain of xi
         LinkedHashSet<Integer> Di = (LinkedHashSet<Integer>) domains.get(constraint.getSecondVar()).clone();
@@ -113,8 +618,9 @@ public abstract class Solver {
 
             //For each value in the domain Dj of xj
             for (Integer dj : Dj) {
+                checks++;
                 //if xi = di and xj = dj satisfies the constraint
-                if (constraint.satisfies(di, dj)) {
+                if (constraint.satisfies(dj, di)) {
                     //Supported is set to true
                     supported = true;
                 }
@@ -127,6 +633,15 @@ public abstract class Solver {
                 changed = true;
                 //Store pruned value for later in case it needs to be restored
                 pruned.add(new BinaryTuple(Di_index, di));
+                numPruned++;
+            }
+        }
+
+        if (metrics != null) {
+            metrics.revision(checks, numPruned);
+
+            if (domains.get(Di_index).isEmpty()) {
+                metrics.wipeOut(constraint, assignments.size());
             }
         }
 
@@ -232,10 +747,10 @@ public abstract class Solver {
     }
 
     /**
-     * Prints the solution
+     * Prints the first solution found
      */
     public void printSolution() {
-        System.out.println(this.toString());
+        System.out.println(solution);
     }
 
     /**
@@ -0,0 +1,339 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Long running solver listening on a local TCP port. Each line sent is a request,
+ * and each result is written back as one JSON line as soon as it is ready.
+ *
+ * Requests:
+ * SOLVE <id> <algorithm> <heuristic> [options] file=<path>
+ * SOLVE <id> <algorithm> <heuristic> [options] inline
+ * (followed by the instance text and a line containing END)
+ * STATS
+ * QUIT (cancels solves still running for the connection)
+ *
+ * Parsed problems are cached by a hash of their text, and solves run on a bounded
+ * pool whose queue rejects requests once it is full. A client which closes its side
+ * of the connection still receives the results of its requests, while solves still
+ * running when it sends QUIT or a result can not be written are cancelled.
+ */
+public final class SolverDaemon {
+    //Options a request may pass, others could make the daemon read or write files named by the client
+    private static final List<String> FLAGS = Arrays.asList("all", "ni", "sym", "metrics");
+    private static final List<String> LIMITS = Arrays.asList("nodes=", "revisions=", "time=");
+
+    //Extra time a half-closed connection waits for results beyond the time limit, for reading problems
+    private static final long WAIT_GRACE_MS = 10000;
+
+    private final ThreadPoolExecutor executor;
+    private final InstanceCache cache;
+    //Time limit of every solve, which requests may only lower
+    private final long maxTimeMS;
+
+    /**
+     * Constructor for SolverDaemon
+     * @param threads - number of solves run concurrently
+     * @param queueSize - number of solves which may wait for a thread before requests are rejected
+     * @param cacheBytes - estimated memory the cached problems may take up
+     * @param maxTimeMS - time limit in milliseconds of every solve
+     */
+    public SolverDaemon(int threads, int queueSize, long cacheBytes, long maxTimeMS) {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+        cache = new InstanceCache(cacheBytes);
+        this.maxTimeMS = maxTimeMS;
+    }
+
+    /**
+     * Main function for the daemon
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 7402;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueSize = 64;
+        long cacheMB = 256;
+        long maxTimeMS = 60000;
+
+        for (String arg : args) {
+            if (arg.startsWith("port=")) {
+                port = Integer.parseInt(arg.substring(5));
+            } else if (arg.startsWith("threads=")) {
+                threads = Integer.parseInt(arg.substring(8));
+            } else if (arg.startsWith("queue=")) {
+                queueSize = Integer.parseInt(arg.substring(6));
+            } else if (arg.startsWith("cache=")) {
+                cacheMB = Long.parseLong(arg.substring(6));
+            } else if (arg.startsWith("time=")) {
+                maxTimeMS = Long.parseLong(arg.substring(5));
+            } else {
+                System.out.println("Usage: java SolverDaemon [port=<port>] [threads=<n>] [queue=<n>] [cache=<MB>] [time=<ms>]");
+                return;
+            }
+        }
+
+        new SolverDaemon(threads, queueSize, cacheMB * 1024 * 1024, maxTimeMS).listen(port);
+    }
+
+    /**
+     * Accepts connections on the loopback interface, handling each on its own thread
+     * @param port - port to listen on
+     */
+    public void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Listening on " + server.getLocalSocketAddress());
+
+            while (true) {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> handle(socket));
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+    }
+
+    /**
+     * Reads requests from a connection until it is closed
+     * @param socket - client connection
+     */
+    private void handle(Socket socket) {
+        //Solves submitted by this connection which have not finished
+        Set<Cancellation> pending = ConcurrentHashMap.newKeySet();
+
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            boolean quit = false;
+
+            while (!quit && (line = in.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+
+                if (tokens[0].equals("QUIT")) {
+                    quit = true;
+                } else if (tokens[0].equals("STATS")) {
+                    respond(out, "{\"cache\":" + cache.toJson() + ",\"active\":" + executor.getActiveCount()
+                            + ",\"queued\":" + executor.getQueue().size() + "}");
+                } else if (tokens[0].equals("SOLVE") && tokens.length >= 5) {
+                    submit(tokens, in, out, pending);
+                } else if (!tokens[0].isEmpty()) {
+                    respond(out, "{\"status\":\"ERROR\",\"message\":" + quote("Unknown request: " + line) + "}");
+                }
+            }
+
+            //Input ended without QUIT, e.g. the client half-closed after its last request,
+            //so keep the connection open while results are still being written. Every solve
+            //ends within the time limit, so if none finishes for longer the rest are cancelled.
+            if (!quit) {
+                synchronized (pending) {
+                    int remaining = pending.size();
+                    long deadline = System.nanoTime() + (maxTimeMS + WAIT_GRACE_MS) * 1000000;
+
+                    while (!pending.isEmpty() && deadline - System.nanoTime() > 0) {
+                        if (pending.size() < remaining) {
+                            remaining = pending.size();
+                            deadline = System.nanoTime() + (maxTimeMS + WAIT_GRACE_MS) * 1000000;
+                        }
+
+                        pending.wait(Math.max(1, (deadline - System.nanoTime()) / 1000000));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            //Client went away, nothing to reply to
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Cancellation cancellation : pending) {
+                cancellation.cancel();
+            }
+        }
+    }
+
+    /**
+     * Submits a SOLVE request to the pool, or rejects it if the queue is full
+     * @param tokens - request line split on whitespace
+     * @param in - connection input, from which inline instance text is read
+     * @param out - connection output
+     * @param pending - unfinished solves of the connection
+     */
+    private void submit(String[] tokens, BufferedReader in, Writer out, Set<Cancellation> pending) throws IOException {
+        String id = tokens[1];
+        String source = tokens[tokens.length - 1];
+        String[] options = Arrays.copyOfRange(tokens, 4, tokens.length - 1);
+        byte[] inline = null;
+
+        if (source.equals("inline")) {
+            StringBuilder text = new StringBuilder();
+            String line;
+
+            while ((line = in.readLine()) != null && !line.trim().equals("END")) {
+                text.append(line).append('\n');
+            }
+
+            inline = text.toString().getBytes(StandardCharsets.UTF_8);
+        } else if (!source.startsWith("file=")) {
+            respond(out, "{\"id\":" + quote(id) + ",\"status\":\"ERROR\",\"message\":\"Expected file=<path> or inline\"}");
+            return;
+        }
+
+        //Checked after any inline text is read, so its lines are not taken as requests
+        for (String option : options) {
+            if (!isAllowed(option)) {
+                respond(out, "{\"id\":" + quote(id) + ",\"status\":\"ERROR\",\"message\":"
+                        + quote("Option not allowed: " + option) + "}");
+                return;
+            }
+        }
+
+        byte[] content = inline;
+        Cancellation cancellation = new Cancellation();
+        pending.add(cancellation);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    //The client is gone if its result can not be written, so its other solves are cancelled
+                    if (!respond(out, solve(id, tokens[2], tokens[3], options, source, content, cancellation))) {
+                        for (Cancellation other : pending) {
+                            other.cancel();
+                        }
+                    }
+                } finally {
+                    synchronized (pending) {
+                        pending.remove(cancellation);
+                        pending.notifyAll();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(cancellation);
+            respond(out, "{\"id\":" + quote(id) + ",\"status\":\"REJECTED\"}");
+        }
+    }
+
+    /**
+     * @return whether a request may pass option, a flag or a numeric limit
+     */
+    private static boolean isAllowed(String option) {
+        if (FLAGS.contains(option)) {
+            return true;
+        }
+
+        for (String limit : LIMITS) {
+            if (option.startsWith(limit) && option.substring(limit.length()).matches("\\d+")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return time limit of a request, its own time= if lower than the daemon's limit
+     */
+    private long timeLimit(String[] options) {
+        long timeMS = maxTimeMS;
+
+        for (String option : options) {
+            if (option.startsWith("time=") && Long.parseLong(option.substring(5)) > 0) {
+                timeMS = Math.min(timeMS, Long.parseLong(option.substring(5)));
+            }
+        }
+
+        return timeMS;
+    }
+
+    /**
+     * Solves a single request
+     * @param content - inline instance text, or null to read source
+     * @return JSON result
+     */
+    private String solve(String id, String algorithm, String heuristic, String[] options, String source,
+                         byte[] content, Cancellation cancellation) {
+        try {
+            if (content == null) {
+                content = Files.readAllBytes(Paths.get(source.substring(5)));
+            }
+
+            String key = InstanceCache.hash(content);
+            BinaryCSP csp = cache.get(key);
+            boolean cached = csp != null;
+
+            if (!cached) {
+                csp = new BinaryCSPReader().readBinaryCSP(new InputStreamReader(
+                        new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+
+                if (csp != null) {
+                    cache.put(key, csp);
+                }
+            }
+
+            Solver solver = BinaryCSPReader.createSolver(csp, algorithm, heuristic);
+
+            if (solver == null) {
+                return "{\"id\":" + quote(id) + ",\"status\":\"ERROR\",\"message\":\"Could not create solver\"}";
+            }
+
+            BinaryCSPReader.applyOptions(solver, csp, options, 0);
+            solver.setTimeLimit(timeLimit(options));
+            solver.setCancellation(cancellation);
+            Status status = solver.solve();
+
+            StringBuilder result = new StringBuilder();
+            result.append("{\"id\":").append(quote(id));
+            result.append(",\"status\":\"").append(status);
+            result.append("\",\"cached\":").append(cached);
+            result.append(",\"time_ms\":").append(solver.getDurationMS());
+            result.append(",\"nodes\":").append(solver.getNumNodes());
+            result.append(",\"arc_revisions\":").append(solver.getNumArcRevisions());
+            result.append(",\"solutions\":").append(solver.getNumSolutions());
+
+            if (solver.getSolutionValues() != null) {
+                result.append(",\"solution\":").append(Arrays.toString(solver.getSolutionValues()).replace(" ", ""));
+            }
+
+            if (solver.getMetrics() != null) {
+                result.append(",\"metrics\":").append(solver.getMetrics().toJson());
+            }
+
+            result.append("}");
+            return result.toString();
+        } catch (Throwable e) {
+            //Errors such as StackOverflowError on a deep instance still get a reply
+            return "{\"id\":" + quote(id) + ",\"status\":\"ERROR\",\"message\":" + quote(e.toString()) + "}";
+        }
+    }
+
+    /**
+     * Writes a JSON line to a connection, one writer at a time
+     * @param out - connection output
+     * @param json - line to write
+     * @return false if the line could not be written as the client went away
+     */
+    private static boolean respond(Writer out, String json) {
+        synchronized (out) {
+            try {
+                out.write(json);
+                out.write('\n');
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return s as a JSON string
+     */
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+}
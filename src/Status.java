@@ -0,0 +1,9 @@
+/**
+ * Enum representing the outcome of a search
+ */
+public enum Status {
+    SAT,
+    UNSAT,
+    LIMIT,
+    CANCELLED
+}
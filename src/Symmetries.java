@@ -0,0 +1,504 @@
+import java.io.*;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Variable/value symmetries of a problem, stored as permutations of literals (var = val).
+ * A permutation is a symmetry if it maps compatible pairs of literals to compatible pairs
+ * and incompatible pairs to incompatible pairs, so it maps solutions onto solutions.
+ * Symmetries are broken by only accepting assignments which are lexicographically no
+ * greater than their image under each symmetry (lex-leader).
+ */
+public class Symmetries {
+    //Largest group which is closed over and used in full for breaking
+    private static final int MAX_GROUP_SIZE = 1024;
+    //Maximum nodes explored when searching for variable permutations
+    private static final long MAX_DETECTION_NODES = 100000;
+
+    private BinaryCSP binaryCSP;
+    private int n;
+    //Index of the first literal of each variable
+    private int[] offsets;
+    //Domain size of each variable
+    private int[] sizes;
+    //Variable and value of each literal
+    private int[] litVar;
+    private int[] litVal;
+    //Allowed literal pairs of each constrained (var, var) pair
+    private HashMap<Long, BitSet> relations = new HashMap<>();
+
+    private ArrayList<int[]> generators = new ArrayList<>();
+    //Every element of the group generated by generators, null if it grew too large
+    private HashSet<IntBuffer> group;
+    //Permutations whose lex-leader constraints are checked during search
+    private ArrayList<int[]> breaking = new ArrayList<>();
+
+    //Scratch space for the image of an assignment, indexed by variable
+    private int[] image;
+    private long detectionNodes = 0;
+    //Checked during detection, true once it should stop with the symmetries found so far
+    private BooleanSupplier stopDetection = () -> false;
+
+    /**
+     * Indexes the literals and relations of a problem
+     * @param binaryCSP - problem whose symmetries are represented
+     */
+    private Symmetries(BinaryCSP binaryCSP) {
+        this.binaryCSP = binaryCSP;
+        n = binaryCSP.getNoVariables();
+        offsets = new int[n];
+        sizes = new int[n];
+        image = new int[n];
+
+        int numLiterals = 0;
+
+        for (int v = 0; v < n; v++) {
+            offsets[v] = numLiterals;
+            sizes[v] = binaryCSP.getUB(v) - binaryCSP.getLB(v) + 1;
+            numLiterals += sizes[v];
+        }
+
+        litVar = new int[numLiterals];
+        litVal = new int[numLiterals];
+
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < sizes[v]; i++) {
+                litVar[offsets[v] + i] = v;
+                litVal[offsets[v] + i] = binaryCSP.getLB(v) + i;
+            }
+        }
+
+        //Store each relation in both directions
+        for (BinaryConstraint bc : binaryCSP.getConstraints()) {
+            int first = bc.getFirstVar();
+            int second = bc.getSecondVar();
+            BitSet forward = relations.computeIfAbsent(key(first, second), k -> new BitSet());
+            BitSet backward = relations.computeIfAbsent(key(second, first), k -> new BitSet());
+
+            for (BinaryTuple tuple : bc.getTuples()) {
+                int i = tuple.getVal1() - binaryCSP.getLB(first);
+                int j = tuple.getVal2() - binaryCSP.getLB(second);
+
+                if (i >= 0 && i < sizes[first] && j >= 0 && j < sizes[second]) {
+                    forward.set(i * sizes[second] + j);
+                    backward.set(j * sizes[first] + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Detects symmetries automatically. Variable permutations which preserve every
+     * relation are searched for with each value kept or reflected within its domain,
+     * and the transpose (var = val) -> (val = var) is tried when the problem is square.
+     * Every symmetry found is valid, so detection may stop early and use those found so far.
+     * @param binaryCSP - problem to detect symmetries of
+     * @param stop - checked regularly, detection ends once it returns true
+     * @return detected symmetries
+     */
+    public static Symmetries detect(BinaryCSP binaryCSP, BooleanSupplier stop) {
+        Symmetries symmetries = new Symmetries(binaryCSP);
+        symmetries.stopDetection = stop;
+        symmetries.closeGroup();
+
+        for (boolean reflect : new boolean[] {false, true}) {
+            symmetries.detectionNodes = 0;
+            symmetries.searchVariableMaps(reflect, new int[symmetries.n], new boolean[symmetries.n], 0);
+        }
+
+        int[] transpose = symmetries.transpose();
+
+        if (transpose != null && symmetries.group != null && !stop.getAsBoolean()
+                && !symmetries.group.contains(IntBuffer.wrap(transpose)) && symmetries.preserves(transpose)) {
+            symmetries.addGenerator(transpose);
+        }
+
+        symmetries.selectBreaking();
+        return symmetries;
+    }
+
+    /**
+     * Reads symmetry generators supplied by the user
+     * File format:
+     * g
+     * <var>, <val>, <image var>, <image val>
+     * (one line per mapped literal, literals not listed are mapped to themselves)
+     * @param binaryCSP - problem the generators apply to
+     * @param fn - file of generators
+     * @return symmetries generated by the valid generators in the file
+     * @throws IOException - if the file can not be read
+     */
+    public static Symmetries read(BinaryCSP binaryCSP, String fn) throws IOException {
+        Symmetries symmetries = new Symmetries(binaryCSP);
+        symmetries.closeGroup();
+
+        try (FileReader inFR = new FileReader(fn)) {
+            StreamTokenizer in = new StreamTokenizer(inFR);
+            in.nextToken();                                 //'g' or EOF
+
+            while (in.ttype != StreamTokenizer.TT_EOF) {
+                int[] generator = symmetries.identity();
+                boolean valid = true;
+
+                in.nextToken();                             //var of 1st literal
+                while (!"g".equals(in.sval) && in.ttype != StreamTokenizer.TT_EOF) {
+                    int[] mapping = new int[4];
+
+                    for (int i = 0; i < 4; i++) {
+                        mapping[i] = (int) in.nval;
+                        in.nextToken();                     //',' or next literal/g/EOF
+                        if (i < 3) {
+                            in.nextToken();
+                        }
+                    }
+
+                    int from = symmetries.literal(mapping[0], mapping[1]);
+                    int to = symmetries.literal(mapping[2], mapping[3]);
+
+                    if (from < 0 || to < 0) {
+                        valid = false;
+                    } else {
+                        generator[from] = to;
+                    }
+                }
+
+                if (valid && symmetries.isPermutation(generator) && symmetries.preserves(generator)) {
+                    symmetries.addGenerator(generator);
+                } else {
+                    System.err.println("Ignoring generator which is not a symmetry of the problem");
+                }
+            }
+        }
+
+        symmetries.selectBreaking();
+        return symmetries;
+    }
+
+    /**
+     * Searches for variable permutations which, with values kept or reflected,
+     * preserve every relation. Each one not already in the group becomes a generator.
+     * @param reflect - whether values are reflected within their domain
+     * @param sigma - partial variable permutation
+     * @param used - variables already used as images
+     * @param v - next variable to map
+     */
+    private void searchVariableMaps(boolean reflect, int[] sigma, boolean[] used, int v) {
+        if (group == null || ++detectionNodes > MAX_DETECTION_NODES || stopDetection.getAsBoolean()) {
+            return;
+        }
+
+        if (v == n) {
+            int[] generator = variableMap(sigma, reflect);
+
+            if (!group.contains(IntBuffer.wrap(generator))) {
+                addGenerator(generator);
+            }
+            return;
+        }
+
+        for (int u = 0; u < n; u++) {
+            //Each candidate costs O(n) relation comparisons, so stopping is checked for each
+            if (used[u] || sizes[u] != sizes[v] || stopDetection.getAsBoolean()) {
+                continue;
+            }
+
+            //Every relation with an earlier variable must map onto the relation between the images
+            boolean consistent = true;
+            for (int w = 0; w < v && consistent; w++) {
+                consistent = pairPreserved(v, w, u, sigma[w], reflect);
+            }
+
+            if (consistent) {
+                sigma[v] = u;
+                used[u] = true;
+                searchVariableMaps(reflect, sigma, used, v + 1);
+                used[u] = false;
+            }
+        }
+    }
+
+    /**
+     * Checks that the relation between v and w maps onto the relation between u and x
+     * @return whether every pair of values keeps its compatibility
+     */
+    private boolean pairPreserved(int v, int w, int u, int x, boolean reflect) {
+        if (!relations.containsKey(key(v, w)) && !relations.containsKey(key(u, x))) {
+            return true;
+        }
+
+        for (int i = 0; i < sizes[v]; i++) {
+            for (int j = 0; j < sizes[w]; j++) {
+                int imageI = reflect ? sizes[v] - 1 - i : i;
+                int imageJ = reflect ? sizes[w] - 1 - j : j;
+
+                if (compatible(v, i, w, j) != compatible(u, imageI, x, imageJ)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether a literal permutation preserves the compatibility of every pair of literals
+     * @param permutation - literal permutation to check
+     * @return whether permutation is a symmetry
+     */
+    private boolean preserves(int[] permutation) {
+        for (int a = 0; a < litVar.length; a++) {
+            for (int b = a + 1; b < litVar.length; b++) {
+                if (compatible(a, b) != compatible(permutation[a], permutation[b])) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean compatible(int a, int b) {
+        return compatible(litVar[a], a - offsets[litVar[a]], litVar[b], b - offsets[litVar[b]]);
+    }
+
+    /**
+     * Checks whether two literals, given as value offsets into their domains, can hold together
+     */
+    private boolean compatible(int v, int i, int w, int j) {
+        if (v == w) {
+            return false;
+        }
+
+        BitSet relation = relations.get(key(v, w));
+        return relation == null || relation.get(i * sizes[w] + j);
+    }
+
+    private long key(int v, int w) {
+        return (long) v * n + w;
+    }
+
+    /**
+     * @return literal index of var = val, or -1 if val is outside the domain of var
+     */
+    private int literal(int var, int val) {
+        if (var < 0 || var >= n || val < binaryCSP.getLB(var) || val > binaryCSP.getUB(var)) {
+            return -1;
+        }
+
+        return offsets[var] + val - binaryCSP.getLB(var);
+    }
+
+    private int[] identity() {
+        int[] identity = new int[litVar.length];
+
+        for (int l = 0; l < identity.length; l++) {
+            identity[l] = l;
+        }
+
+        return identity;
+    }
+
+    private boolean isPermutation(int[] map) {
+        boolean[] seen = new boolean[map.length];
+
+        for (int l : map) {
+            if (seen[l]) {
+                return false;
+            }
+            seen[l] = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Builds the literal permutation for a variable permutation
+     * @param sigma - variable permutation
+     * @param reflect - whether values are reflected within their domain
+     * @return literal permutation
+     */
+    private int[] variableMap(int[] sigma, boolean reflect) {
+        int[] map = new int[litVar.length];
+
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < sizes[v]; i++) {
+                map[offsets[v] + i] = offsets[sigma[v]] + (reflect ? sizes[v] - 1 - i : i);
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Builds the permutation swapping variables and values, (v = lb + i) -> (i = lb + v),
+     * which exists when there are as many variables as values and every domain is the same
+     * @return literal permutation, or null if the problem is not square
+     */
+    private int[] transpose() {
+        if (n == 0) {
+            return null;
+        }
+
+        int lb = binaryCSP.getLB(0);
+
+        for (int v = 0; v < n; v++) {
+            if (binaryCSP.getLB(v) != lb || sizes[v] != n) {
+                return null;
+            }
+        }
+
+        int[] map = new int[litVar.length];
+
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < n; i++) {
+                map[offsets[v] + i] = offsets[i] + v;
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Adds a generator and extends the group with it
+     * @param generator - literal permutation which is a symmetry
+     */
+    private void addGenerator(int[] generator) {
+        generators.add(generator);
+        closeGroup();
+    }
+
+    /**
+     * Computes every product of the generators, giving up once the group is too large to store
+     */
+    private void closeGroup() {
+        HashSet<IntBuffer> elements = new HashSet<>();
+        LinkedList<int[]> queue = new LinkedList<>();
+        int[] identity = identity();
+
+        elements.add(IntBuffer.wrap(identity));
+        queue.add(identity);
+
+        while (!queue.isEmpty()) {
+            int[] element = queue.pop();
+
+            for (int[] generator : generators) {
+                int[] product = new int[element.length];
+
+                for (int l = 0; l < product.length; l++) {
+                    product[l] = generator[element[l]];
+                }
+
+                //IntBuffer compares by content, so identical permutations are only stored once
+                if (elements.add(IntBuffer.wrap(product))) {
+                    if (elements.size() > MAX_GROUP_SIZE) {
+                        group = null;
+                        return;
+                    }
+                    queue.add(product);
+                }
+            }
+        }
+
+        group = elements;
+    }
+
+    /**
+     * Breaks the whole group if it was stored, otherwise only the generators.
+     * Breaking the whole group leaves exactly one solution of each orbit.
+     */
+    private void selectBreaking() {
+        if (group == null) {
+            breaking.addAll(generators);
+            return;
+        }
+
+        int[] identity = identity();
+
+        for (IntBuffer element : group) {
+            if (!Arrays.equals(element.array(), identity)) {
+                breaking.add(element.array());
+            }
+        }
+    }
+
+    /**
+     * Checks that a (partial) assignment may still be lexicographically no greater than
+     * its image under each breaking symmetry, comparing variables in ascending order
+     * @param assignments - current assignments
+     * @return false if the assignment is greater than one of its images
+     */
+    public boolean isLexLeader(Map<Integer, Integer> assignments) {
+        for (int[] symmetry : breaking) {
+            //Literal assigned to each variable in the image, -1 if unknown
+            Arrays.fill(image, -1);
+
+            for (Map.Entry<Integer, Integer> assignment : assignments.entrySet()) {
+                int mapped = symmetry[literal(assignment.getKey(), assignment.getValue())];
+                image[litVar[mapped]] = mapped;
+            }
+
+            for (int v = 0; v < n; v++) {
+                Integer val = assignments.get(v);
+
+                //Comparison can not be decided until both are assigned
+                if (val == null || image[v] == -1 || val < litVal[image[v]]) {
+                    break;
+                } else if (val > litVal[image[v]]) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Counts the distinct solutions a solution is mapped to by the group
+     * @param assignments - complete assignment
+     * @return size of the orbit of the solution
+     */
+    public long orbitSize(Map<Integer, Integer> assignments) {
+        HashSet<IntBuffer> orbit = new HashSet<>();
+
+        for (IntBuffer element : group) {
+            int[] images = new int[n];
+
+            for (Map.Entry<Integer, Integer> assignment : assignments.entrySet()) {
+                int mapped = element.get(literal(assignment.getKey(), assignment.getValue()));
+                images[litVar[mapped]] = litVal[mapped];
+            }
+
+            orbit.add(IntBuffer.wrap(images));
+        }
+
+        return orbit.size();
+    }
+
+    /**
+     * @return whether the whole group is broken, so each solution found stands for its orbit
+     */
+    public boolean isComplete() {
+        return group != null;
+    }
+
+    /**
+     * @return hash of the permutations broken and whether the whole group is, which
+     * together decide the assignments searched and how solutions are counted
+     */
+    public String fingerprint() {
+        int hash = Arrays.deepHashCode(breaking.toArray(new int[0][]));
+        return String.format("%08x", 31 * hash + (isComplete() ? 1 : 0));
+    }
+
+    public int getNoGenerators() {
+        return generators.size();
+    }
+
+    /**
+     * @return number of elements in the group, or -1 if it was too large to store
+     */
+    public int getGroupSize() {
+        return group == null ? -1 : group.size();
+    }
+}